@@ -0,0 +1,72 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.service.CentsFeeService;
+import com.cloudwalk.ipsim.service.FeeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FeeService (BigDecimal) vs CentsFeeService (long cents / basis points)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeeBenchmark {
+
+    private static final int BATCH = 1024;
+
+    @Param({"DEBIT", "CREDIT_INSTALLMENT"})
+    public TransactionType type;
+
+    private final FeeService feeService = new FeeService();
+    private final CentsFeeService centsFeeService = new CentsFeeService();
+
+    private BigDecimal amount;
+    private long amountCents;
+    private long[] batchCents;
+    private long[] batchFees;
+
+    @Setup
+    public void setUp() {
+        amount = new BigDecimal("1234.56");
+        amountCents = 123_456L;
+        batchCents = new long[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            batchCents[i] = 100L + i * 997L;
+        }
+        batchFees = new long[BATCH];
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalFee() {
+        return feeService.calculateFee(amount, type, 12);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalNetAmount() {
+        return feeService.calculateNetAmount(amount, type, 12);
+    }
+
+    @Benchmark
+    public long centsFee() {
+        return centsFeeService.calculateFee(amountCents, type, 12);
+    }
+
+    @Benchmark
+    public long centsNetAmount() {
+        return centsFeeService.calculateNetAmount(amountCents, type, 12);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] centsFeeBulk() {
+        centsFeeService.calculateFees(batchCents, type, 12, batchFees);
+        return batchFees;
+    }
+}
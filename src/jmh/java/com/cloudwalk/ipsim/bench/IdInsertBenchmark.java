@@ -0,0 +1,116 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.model.UuidV7;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Insert throughput into the transactions table by primary key strategy
+ *
+ * Each iteration builds a fresh file-backed H2 database from the Flyway
+ * migrations (so every secondary index is present) and inserts {@code rows}
+ * transactions in JDBC batches, the way Hibernate does with
+ * hibernate.jdbc.batch_size.
+ *
+ * - random: UUID.randomUUID(), what GenerationType.UUID produces
+ * - v7: UuidV7, time-ordered
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class IdInsertBenchmark {
+
+    private static final int JDBC_BATCH_SIZE = 50;
+    private static final int COMMIT_EVERY = 1_000;
+
+    @Param({"random", "v7"})
+    public String strategy;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Path directory;
+    private Connection connection;
+    private UUID cardId;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("ipsim-id-bench");
+        String url = "jdbc:h2:file:" + directory.resolve("bench");
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        connection.setAutoCommit(false);
+
+        cardId = nextId();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO cards (id, token, last4, holder_name, expiry_date) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setObject(1, cardId);
+            ps.setString(2, "bench-card");
+            ps.setString(3, "1111");
+            ps.setString(4, "Bench");
+            ps.setString(5, "12/30");
+            ps.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        BigDecimal amount = new BigDecimal("150.00");
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        try (PreparedStatement ps = connection.prepareStatement("""
+                INSERT INTO transactions (id, amount, type, installments, status, timestamp, card_id, order_nsu)
+                VALUES (?, ?, 'CREDIT_SPOT', 1, 'PENDING', ?, ?, ?)
+                """)) {
+            for (int i = 1; i <= rows; i++) {
+                ps.setObject(1, nextId());
+                ps.setBigDecimal(2, amount);
+                ps.setTimestamp(3, now);
+                ps.setObject(4, cardId);
+                ps.setString(5, "ORD-" + i);
+                ps.addBatch();
+
+                if (i % JDBC_BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+                if (i % COMMIT_EVERY == 0) {
+                    connection.commit();
+                }
+            }
+            ps.executeBatch();
+            connection.commit();
+        }
+        return rows;
+    }
+
+    private UUID nextId() {
+        return "v7".equals(strategy) ? UuidV7.next() : UUID.randomUUID();
+    }
+}
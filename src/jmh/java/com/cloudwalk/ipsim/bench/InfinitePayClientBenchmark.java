@@ -0,0 +1,81 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.config.InfinitePayConfig;
+import com.cloudwalk.ipsim.support.InfinitePayStubServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InfinitePay WebClient against a local stub with 20 ms latency
+ *
+ * Each invocation fires a burst of concurrent checkout requests:
+ * - unpooled: a new TCP connection per request
+ * - pooled: the application's connection pool, sized via infinitepay.http.*
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InfinitePayClientBenchmark {
+
+    @Param({"unpooled", "pooled"})
+    public String mode;
+
+    @Param({"64", "256"})
+    public int burst;
+
+    private InfinitePayStubServer stub;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = InfinitePayStubServer.start(Duration.ofMillis(20));
+
+        InfinitePayConfig config = new InfinitePayConfig();
+        ReflectionTestUtils.setField(config, "apiBaseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(config, "maxConnections", 100);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 1000);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "evictInBackground", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(config, "responseTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(config, "readTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(config, "writeTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(config, "keepAlive", true);
+
+        connectionProvider = "pooled".equals(mode)
+                ? config.infinitePayConnectionProvider()
+                : ConnectionProvider.newConnection();
+        webClient = config.infinitePayWebClient(connectionProvider);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionProvider.dispose();
+        stub.close();
+    }
+
+    @Benchmark
+    public Long checkoutBurst() {
+        return Flux.range(0, burst)
+                .flatMap(i -> webClient.post()
+                        .uri("/invoices/public/checkout/links")
+                        .bodyValue("{}")
+                        .retrieve()
+                        .bodyToMono(String.class), burst)
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,86 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.dto.infinitepay.CheckoutItemDTO;
+import com.cloudwalk.ipsim.dto.infinitepay.CustomerDTO;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutRequest;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayWebhookPayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the InfinitePay payloads
+ *
+ * Uses pre-built readers/writers, as Spring's message converters do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectWriter checkoutRequestWriter;
+    private ObjectWriter webhookWriter;
+    private ObjectReader webhookReader;
+
+    private InfinitePayCheckoutRequest checkoutRequest;
+    private InfinitePayWebhookPayload webhook;
+    private byte[] webhookJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        checkoutRequestWriter = objectMapper.writerFor(InfinitePayCheckoutRequest.class);
+        webhookWriter = objectMapper.writerFor(InfinitePayWebhookPayload.class);
+        webhookReader = objectMapper.readerFor(InfinitePayWebhookPayload.class);
+
+        CheckoutItemDTO item = CheckoutItemDTO.builder()
+                .quantity(1)
+                .price(15000L)
+                .description("Pagamento - Credito Parcelado 12x")
+                .build();
+
+        checkoutRequest = InfinitePayCheckoutRequest.builder()
+                .handle("ipsim")
+                .items(List.of(item))
+                .orderNsu("ORD-1708234567-a1b2c3")
+                .redirectUrl("http://localhost:8080/success")
+                .webhookUrl("https://abc123.ngrok.io/api/webhooks/infinitepay")
+                .customer(CustomerDTO.builder().name("Maria Silva").email("maria@example.com").build())
+                .build();
+
+        webhook = InfinitePayWebhookPayload.builder()
+                .invoiceSlug("abc123")
+                .amount(15000L)
+                .installments(12)
+                .captureMethod("credit_card")
+                .transactionNsu("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0")
+                .orderNsu("ORD-1708234567-a1b2c3")
+                .receiptUrl("https://comprovante.infinitepay.io/123")
+                .items(List.of(item))
+                .build();
+        webhookJson = webhookWriter.writeValueAsBytes(webhook);
+    }
+
+    @Benchmark
+    public byte[] serializeCheckoutRequest() throws IOException {
+        return checkoutRequestWriter.writeValueAsBytes(checkoutRequest);
+    }
+
+    @Benchmark
+    public byte[] serializeWebhook() throws IOException {
+        return webhookWriter.writeValueAsBytes(webhook);
+    }
+
+    @Benchmark
+    public InfinitePayWebhookPayload deserializeWebhook() throws IOException {
+        return webhookReader.readValue(webhookJson);
+    }
+}
@@ -0,0 +1,132 @@
+package com.cloudwalk.ipsim.bench;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.cloudwalk.ipsim.config.LogSamplingFilter;
+import com.cloudwalk.ipsim.config.LogSamplingTurboFilter;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput by logging setup
+ *
+ * Each operation stands for one payment request: a little CPU work and the
+ * two INFO lines PaymentService used to write per payment. Lines go to a
+ * file with immediate flush, standing in for the console.
+ *
+ * - appender: sync (encode and write on the request thread) or async
+ *   (bounded queue, never blocks, as in logback-spring.xml)
+ * - format: pattern (default console) or json (prod profile)
+ * - sampleRate: fraction of requests whose INFO lines are kept
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("150.00");
+    private static final String ORDER_NSU = "ORD-1708234567-a1b2c3";
+    private static final String CHECKOUT_URL = "https://checkout.infinitepay.io/ipsim/abc123";
+    private static final long WORK_TOKENS = 2_000;
+
+    @Param({"sync", "async"})
+    public String appender;
+
+    @Param({"pattern", "json"})
+    public String format;
+
+    @Param({"1.0", "0.05"})
+    public double sampleRate;
+
+    private Path file;
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("ipsim-logging-bench", ".log");
+        context = new LoggerContext();
+
+        LogSamplingTurboFilter samplingFilter = new LogSamplingTurboFilter();
+        samplingFilter.setContext(context);
+        samplingFilter.start();
+        context.addTurboFilter(samplingFilter);
+
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setImmediateFlush(true);
+        fileAppender.setEncoder(encoder());
+        fileAppender.start();
+
+        Appender<ILoggingEvent> root = fileAppender;
+        if ("async".equals(appender)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(819);
+            async.setNeverBlock(true);
+            async.addAppender(fileAppender);
+            async.start();
+            root = async;
+        }
+
+        Logger rootLogger = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        rootLogger.addAppender(root);
+        logger = context.getLogger("com.cloudwalk.ipsim.service.PaymentService");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void request() {
+        boolean sampled = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        MDC.put(LogSamplingFilter.MDC_KEY, sampled ? "true" : "false");
+        try {
+            logger.info("Processing payment via InfinitePay. Amount: {}", AMOUNT);
+            Blackhole.consumeCPU(WORK_TOKENS);
+            logger.info("Payment initiated. Order NSU: {}, Checkout URL: {}", ORDER_NSU, CHECKOUT_URL);
+        } finally {
+            MDC.remove(LogSamplingFilter.MDC_KEY);
+        }
+    }
+
+    private Encoder<ILoggingEvent> encoder() {
+        if ("json".equals(format)) {
+            LogstashEncoder encoder = new LogstashEncoder();
+            encoder.setContext(context);
+            encoder.start();
+            return encoder;
+        }
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        // Same fields as Spring Boot's default console pattern
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        return encoder;
+    }
+}
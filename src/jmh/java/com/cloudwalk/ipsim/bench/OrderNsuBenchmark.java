@@ -0,0 +1,43 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.service.OrderNsuGenerator;
+import com.cloudwalk.ipsim.service.SnowflakeOrderNsuGenerator;
+import com.cloudwalk.ipsim.service.UuidOrderNsuGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order NSU generation, single-threaded and under contention
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderNsuBenchmark {
+
+    @Param({"uuid", "snowflake"})
+    public String generator;
+
+    private OrderNsuGenerator orderNsuGenerator;
+
+    @Setup
+    public void setUp() {
+        orderNsuGenerator = "uuid".equals(generator)
+                ? new UuidOrderNsuGenerator()
+                : new SnowflakeOrderNsuGenerator(1);
+    }
+
+    @Benchmark
+    public String generateOrderNsu() {
+        return orderNsuGenerator.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateOrderNsuContended() {
+        return orderNsuGenerator.next();
+    }
+}
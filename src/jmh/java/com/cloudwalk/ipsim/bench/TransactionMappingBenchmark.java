@@ -0,0 +1,45 @@
+package com.cloudwalk.ipsim.bench;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction entity -> TransactionResponseDTO mapping used by the controller
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionMappingBenchmark {
+
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setAmount(new BigDecimal("150.00"));
+        transaction.setNetAmount(new BigDecimal("126.00"));
+        transaction.setType(TransactionType.CREDIT_INSTALLMENT);
+        transaction.setInstallments(12);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setOrderNsu("ORD-1708234567-a1b2c3");
+        transaction.setCheckoutUrl("https://pay.infinitepay.io/c/abc123def456");
+    }
+
+    @Benchmark
+    public TransactionResponseDTO toResponse() {
+        return TransactionResponseDTO.from(transaction, "Checkout link created. Please complete payment.");
+    }
+}
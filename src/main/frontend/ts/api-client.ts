@@ -8,14 +8,36 @@ export interface TransactionResponse {
     id: string;
     amount: number;
     netAmount: number | null;
-    status: 'PENDING' | 'APPROVED' | 'DENIED';
+    status: 'PENDING_CREATE' | 'PENDING' | 'APPROVED' | 'DENIED';
     timestamp: string;
+    createdAt: string;
     message: string;
     checkoutUrl: string | null;
     orderNsu: string | null;
     receiptUrl: string | null;
 }
 
+// ── Dashboard aggregates (DashboardSummaryDTO) ─────────────────────
+export interface DashboardAggregate {
+    count: number;
+    amount: number;
+    netAmount: number;
+}
+
+export interface DashboardBucket {
+    start: string;
+    total: DashboardAggregate;
+    byStatus: Partial<Record<TransactionResponse['status'], DashboardAggregate>>;
+}
+
+export interface DashboardSummary {
+    total: DashboardAggregate;
+    byStatus: Partial<Record<TransactionResponse['status'], DashboardAggregate>>;
+    byType: Record<string, DashboardAggregate>;
+    byInstallments: Record<string, DashboardAggregate>;
+    buckets: DashboardBucket[];
+}
+
 // ── Payment request payload ────────────────────────────────────────
 export interface PaymentRequest {
     amount: number;
@@ -29,8 +51,9 @@ export interface PaymentRequest {
 // ── API helpers ────────────────────────────────────────────────────
 
 /**
- * Submit a payment. Returns a TransactionResponse which may include
- * a checkoutUrl when InfinitePay integration is active.
+ * Submit a payment. Returns a TransactionResponse in PENDING_CREATE status,
+ * usually without a checkoutUrl: it is pushed over subscribeToPaymentStatus
+ * once InfinitePay has created the link (status PENDING).
  */
 export async function submitPayment(payload: PaymentRequest): Promise<TransactionResponse> {
     const response = await fetch('/api/transactions', {
@@ -48,8 +71,8 @@ export async function submitPayment(payload: PaymentRequest): Promise<Transactio
 }
 
 /**
- * Poll a single transaction by its internal order NSU.
- * Used to detect when the webhook has flipped status to APPROVED.
+ * Look up a single transaction by its internal order NSU.
+ * To wait for the webhook, use subscribeToPaymentStatus instead.
  */
 export async function checkPaymentStatus(orderNsu: string): Promise<TransactionResponse> {
     const response = await fetch(`/api/transactions/order/${orderNsu}`);
@@ -62,10 +85,32 @@ export async function checkPaymentStatus(orderNsu: string): Promise<TransactionR
 }
 
 /**
- * Fetch all transactions (for the dashboard).
+ * Subscribe to status changes of a single order via Server-Sent Events.
+ * The server pushes the current state right away and then every transition
+ * (checkout link created, then e.g. the webhook flipping status to APPROVED).
+ * Call close() on the returned EventSource once a terminal status arrives.
+ */
+export function subscribeToPaymentStatus(
+    orderNsu: string,
+    onUpdate: (txn: TransactionResponse) => void,
+    onError: (event: Event) => void,
+): EventSource {
+    const source = new EventSource(`/api/transactions/order/${encodeURIComponent(orderNsu)}/events`);
+
+    source.addEventListener('status', (event) => {
+        onUpdate(JSON.parse((event as MessageEvent).data));
+    });
+    source.onerror = onError;
+
+    return source;
+}
+
+/**
+ * Fetch the most recent transactions, newest first (for the dashboard).
+ * The API is keyset-paginated; only the first page is requested here.
  */
-export async function fetchAllTransactions(): Promise<TransactionResponse[]> {
-    const response = await fetch('/api/transactions');
+export async function fetchRecentTransactions(limit: number = 50): Promise<TransactionResponse[]> {
+    const response = await fetch(`/api/transactions?limit=${limit}`);
 
     if (!response.ok) {
         throw new Error(`Failed to load transactions (${response.status})`);
@@ -73,3 +118,22 @@ export async function fetchAllTransactions(): Promise<TransactionResponse[]> {
 
     return await response.json();
 }
+
+/**
+ * Fetch the dashboard totals, aggregated on the server.
+ * Optional from/to bound the creation time (ISO-8601).
+ */
+export async function fetchDashboardSummary(from?: string, to?: string): Promise<DashboardSummary> {
+    const params = new URLSearchParams();
+    if (from) params.set('from', from);
+    if (to) params.set('to', to);
+    const query = params.toString();
+
+    const response = await fetch(`/api/dashboard/summary${query ? '?' + query : ''}`);
+
+    if (!response.ok) {
+        throw new Error(`Failed to load dashboard summary (${response.status})`);
+    }
+
+    return await response.json();
+}
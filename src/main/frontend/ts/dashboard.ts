@@ -1,4 +1,4 @@
-import { fetchAllTransactions, TransactionResponse } from './api-client.js';
+import { fetchDashboardSummary, fetchRecentTransactions, DashboardSummary, TransactionResponse } from './api-client.js';
 
 document.addEventListener('DOMContentLoaded', () => {
     loadTransactions();
@@ -10,15 +10,22 @@ async function loadTransactions() {
     if (!statsContainer || !tbody) return;
 
     try {
-        const transactions: TransactionResponse[] = await fetchAllTransactions();
+        const [summary, transactions]: [DashboardSummary, TransactionResponse[]] = await Promise.all([
+            fetchDashboardSummary(),
+            fetchRecentTransactions(),
+        ]);
 
-        // 1. Calculate Stats
-        const totalVolume = transactions.reduce((acc, t) => acc + t.amount, 0);
-        const totalNet = transactions.reduce((acc, t) => acc + (t.netAmount ?? 0), 0);
-        const approvedCount = transactions.filter(t => t.status === 'APPROVED').length;
-        const pendingCount = transactions.filter(t => t.status === 'PENDING').length;
-        const successRate = transactions.length > 0
-            ? (approvedCount / transactions.length * 100).toFixed(1)
+        // 1. Stats are aggregated on the server over all transactions
+        const totalCount = summary.total.count;
+        const totalVolume = summary.total.amount;
+        const totalNet = summary.total.netAmount;
+        const approved = summary.byStatus.APPROVED;
+        const pending = summary.byStatus.PENDING;
+        const pendingCreate = summary.byStatus.PENDING_CREATE;
+        const approvedCount = approved ? approved.count : 0;
+        const pendingCount = (pending ? pending.count : 0) + (pendingCreate ? pendingCreate.count : 0);
+        const successRate = totalCount > 0
+            ? (approvedCount / totalCount * 100).toFixed(1)
             : '0.0';
 
         // 2. Render Stats
@@ -29,7 +36,7 @@ async function loadTransactions() {
                     <span class="material-symbols-outlined stat-card__icon">account_balance</span>
                 </div>
                 <h3 class="stat-card__value">R$ ${totalVolume.toFixed(2)}</h3>
-                <p class="stat-card__delta stat-card__delta--positive">${transactions.length} transactions</p>
+                <p class="stat-card__delta stat-card__delta--positive">${totalCount} transactions</p>
             </div>
             <div class="stat-card">
                 <div class="stat-card__header">
@@ -61,7 +68,7 @@ async function loadTransactions() {
         tbody.innerHTML = transactions.map(t => {
             const statusClass =
                 t.status === 'APPROVED' ? 'status-badge--approved'
-                    : t.status === 'PENDING' ? 'status-badge--pending'
+                    : t.status === 'PENDING' || t.status === 'PENDING_CREATE' ? 'status-badge--pending'
                         : 'status-badge--declined';
 
             const netDisplay = t.netAmount != null ? `R$ ${t.netAmount.toFixed(2)}` : '–';
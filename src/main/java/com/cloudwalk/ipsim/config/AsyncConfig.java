@@ -0,0 +1,70 @@
+package com.cloudwalk.ipsim.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration for the asynchronous checkout path
+ *
+ * The upstream InfinitePay calls are fully non-blocking. The only blocking
+ * work left on the async path is JPA, which is offloaded to a bounded
+ * scheduler so it can never starve the Netty event loop or grow unbounded.
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Max threads doing JPA work for the async path
+     * Defaults to the Hikari default pool size, more threads would only
+     * queue on the connection pool anyway.
+     *
+     * Set in application.properties as:
+     * ipsim.async.jpa-pool-size=10
+     */
+    @Value("${ipsim.async.jpa-pool-size:10}")
+    private int jpaPoolSize;
+
+    /**
+     * Max tasks queued per JPA thread before submissions are rejected
+     *
+     * Set in application.properties as:
+     * ipsim.async.jpa-queue-size=1000
+     */
+    @Value("${ipsim.async.jpa-queue-size:1000}")
+    private int jpaQueueSize;
+
+    /**
+     * Virtual-thread execution mode (Java 21+)
+     *
+     * This is Spring Boot's own switch: when enabled, Boot already runs
+     * Tomcat request handling, the applicationTaskExecutor and @Scheduled
+     * tasks on virtual threads, so blocking JPA calls and the .block() calls
+     * in InfinitePayService park a virtual thread instead of pinning a
+     * platform worker. Here it also moves the JPA scheduler onto virtual
+     * threads, keeping the same concurrency cap.
+     *
+     * Set in application.properties as:
+     * spring.threads.virtual.enabled=true
+     */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Bounded scheduler for blocking repository calls made from reactive chains
+     *
+     * @return Scheduler dedicated to JPA work
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jpaScheduler() {
+        if (virtualThreads) {
+            ThreadFactory factory = Thread.ofVirtual().name("jpa-virtual-", 0).factory();
+            return Schedulers.newBoundedElastic(jpaPoolSize, jpaQueueSize, factory, 60);
+        }
+        return Schedulers.newBoundedElastic(jpaPoolSize, jpaQueueSize, "jpa");
+    }
+}
@@ -1,9 +1,20 @@
 package com.cloudwalk.ipsim.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Configuration for InfinitePay Checkout API Integration
@@ -12,6 +23,8 @@ import org.springframework.web.reactive.function.client.WebClient;
  * - WebClient bean configured for InfinitePay API calls
  * - Configuration properties for API endpoints and credentials
  * - Centralized HTTP client setup with proper headers
+ * - Bounded connection pool and timeouts, so a slow upstream cannot pile
+ *   up requests without limit
  */
 @Configuration
 public class InfinitePayConfig {
@@ -46,6 +59,132 @@ public class InfinitePayConfig {
     @Value("${infinitepay.webhook.base-url}")
     private String webhookBaseUrl;
 
+    /**
+     * Max open connections to InfinitePay
+     *
+     * Set in application.properties as:
+     * infinitepay.http.max-connections=100
+     */
+    @Value("${infinitepay.http.max-connections:100}")
+    private int maxConnections;
+
+    /**
+     * Max requests waiting for a free connection; more fail immediately
+     *
+     * Set in application.properties as:
+     * infinitepay.http.pending-acquire-max-count=1000
+     */
+    @Value("${infinitepay.http.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    /**
+     * Max time a request waits for a free connection
+     *
+     * Set in application.properties as:
+     * infinitepay.http.pending-acquire-timeout=5s
+     */
+    @Value("${infinitepay.http.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    /**
+     * Idle connections are closed after this long
+     * Keep below the upstream/load balancer idle timeout
+     *
+     * Set in application.properties as:
+     * infinitepay.http.max-idle-time=30s
+     */
+    @Value("${infinitepay.http.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    /**
+     * Connections are recycled after this long, even if busy
+     *
+     * Set in application.properties as:
+     * infinitepay.http.max-life-time=5m
+     */
+    @Value("${infinitepay.http.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    /**
+     * How often idle/expired connections are evicted in the background
+     *
+     * Set in application.properties as:
+     * infinitepay.http.evict-in-background=30s
+     */
+    @Value("${infinitepay.http.evict-in-background:30s}")
+    private Duration evictInBackground;
+
+    /**
+     * TCP connect timeout
+     *
+     * Set in application.properties as:
+     * infinitepay.http.connect-timeout=3s
+     */
+    @Value("${infinitepay.http.connect-timeout:3s}")
+    private Duration connectTimeout;
+
+    /**
+     * Max time between sending the request and receiving the response headers
+     *
+     * Set in application.properties as:
+     * infinitepay.http.response-timeout=10s
+     */
+    @Value("${infinitepay.http.response-timeout:10s}")
+    private Duration responseTimeout;
+
+    /**
+     * Max inactivity while reading/writing on a connection
+     *
+     * Set in application.properties as:
+     * infinitepay.http.read-timeout=10s
+     * infinitepay.http.write-timeout=10s
+     */
+    @Value("${infinitepay.http.read-timeout:10s}")
+    private Duration readTimeout;
+
+    @Value("${infinitepay.http.write-timeout:10s}")
+    private Duration writeTimeout;
+
+    /**
+     * TCP keep-alive on pooled connections
+     *
+     * Set in application.properties as:
+     * infinitepay.http.keep-alive=true
+     */
+    @Value("${infinitepay.http.keep-alive:true}")
+    private boolean keepAlive;
+
+    /**
+     * Prefer HTTP/2 (negotiated via ALPN over https, h2c over plain http),
+     * falling back to HTTP/1.1 when the server does not support it
+     *
+     * Set in application.properties as:
+     * infinitepay.http.http2=true
+     */
+    @Value("${infinitepay.http.http2:false}")
+    private boolean http2;
+
+    /**
+     * Connection pool shared by every InfinitePay call
+     *
+     * Pool gauges (active, idle, pending connections) are published as
+     * reactor.netty.connection.provider.* metrics with name=infinitepay.
+     *
+     * @return Bounded connection pool
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider infinitePayConnectionProvider() {
+        return ConnectionProvider.builder("infinitepay")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true)
+                .build();
+    }
+
     /**
      * Creates a WebClient bean configured for InfinitePay API calls
      *
@@ -55,12 +194,34 @@ public class InfinitePayConfig {
      * - Fluent API for building requests
      * - Better error handling
      *
+     * Runs on {@link #infinitePayConnectionProvider()} with connect,
+     * response, read and write timeouts. Request metrics are published as
+     * reactor.netty.http.client.* metrics.
+     *
      * @return Configured WebClient instance
      */
     @Bean
-    public WebClient infinitePayWebClient() {
+    public WebClient infinitePayWebClient(ConnectionProvider infinitePayConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(infinitePayConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .keepAlive(keepAlive)
+                .responseTimeout(responseTimeout)
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)))
+                // Only two fixed paths are called, so the URI tag stays low-cardinality
+                .metrics(true, Function.identity());
+
+        if (http2) {
+            httpClient = apiBaseUrl.startsWith("https")
+                    ? httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    : httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
         return WebClient.builder()
                 .baseUrl(apiBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader("Content-Type", "application/json")
                 .defaultHeader("Accept", "application/json")
                 // Add any authentication headers if InfinitePay requires them
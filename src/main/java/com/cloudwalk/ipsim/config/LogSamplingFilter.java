@@ -0,0 +1,85 @@
+package com.cloudwalk.ipsim.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Per-request sampling of INFO logs
+ *
+ * Each request is either sampled (all its INFO lines are logged) or not
+ * (its INFO lines are dropped by {@link LogSamplingTurboFilter}); WARN and
+ * ERROR are always logged. The decision is kept in the MDC under
+ * {@value #MDC_KEY}, so it also shows up in JSON logs.
+ *
+ * Work continued on another thread (async payment path) carries the
+ * decision over with {@link #callWith}. Logs outside any request
+ * (consumers, schedulers) are not sampled.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LogSamplingFilter extends OncePerRequestFilter {
+
+    public static final String MDC_KEY = "sampled";
+
+    /**
+     * Fraction of requests whose INFO lines are logged (1 = all)
+     *
+     * Set in application.properties as:
+     * ipsim.logging.info-sample-rate=1.0
+     */
+    @Value("${ipsim.logging.info-sample-rate:1.0}")
+    private double sampleRate;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean sampled = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        MDC.put(MDC_KEY, sampled ? "true" : "false");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    /**
+     * @return Sampling decision of the current request, null outside a request
+     */
+    public static String currentDecision() {
+        return MDC.get(MDC_KEY);
+    }
+
+    /**
+     * Runs an action on the current thread with a request's sampling decision
+     *
+     * @param decision Value returned by {@link #currentDecision()} on the request thread
+     */
+    public static <T> T callWith(String decision, Supplier<T> action) {
+        if (decision == null) {
+            return action.get();
+        }
+        String previous = MDC.get(MDC_KEY);
+        MDC.put(MDC_KEY, decision);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                MDC.remove(MDC_KEY);
+            } else {
+                MDC.put(MDC_KEY, previous);
+            }
+        }
+    }
+}
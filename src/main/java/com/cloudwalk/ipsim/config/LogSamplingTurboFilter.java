@@ -0,0 +1,35 @@
+package com.cloudwalk.ipsim.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Drops INFO lines of requests that were not sampled (see {@link LogSamplingFilter})
+ *
+ * Runs before the event is created, so a dropped line costs one MDC
+ * lookup: no message formatting, no encoding, no queueing. Only loggers
+ * under {@code loggerPrefix} are sampled.
+ *
+ * Configured in logback-spring.xml.
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+
+    private String loggerPrefix = "com.cloudwalk.ipsim";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (level != Level.INFO || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return "false".equals(MDC.get(LogSamplingFilter.MDC_KEY)) ? FilterReply.DENY : FilterReply.NEUTRAL;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
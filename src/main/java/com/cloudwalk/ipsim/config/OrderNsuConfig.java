@@ -0,0 +1,61 @@
+package com.cloudwalk.ipsim.config;
+
+import com.cloudwalk.ipsim.service.OrderNsuGenerator;
+import com.cloudwalk.ipsim.service.SnowflakeOrderNsuGenerator;
+import com.cloudwalk.ipsim.service.UuidOrderNsuGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for order NSU generation
+ */
+@Configuration
+public class OrderNsuConfig {
+
+    /**
+     * Generator implementation: "uuid" (default) or "snowflake" (time-ordered)
+     *
+     * Set in application.properties as:
+     * ipsim.order-nsu.generator=uuid
+     *
+     * application-dev.properties and application-emulator.properties
+     * switch to snowflake on node 0.
+     */
+    @Value("${ipsim.order-nsu.generator:uuid}")
+    private String generator;
+
+    /**
+     * Id of this instance (0-1023), must differ between instances sharing a database
+     *
+     * Required by the snowflake generator: two instances on the same id
+     * issue the same NSUs. There is no default, so a forgotten
+     * IPSIM_NODE_ID fails startup instead of failing payments on
+     * uk_transactions_order_nsu.
+     *
+     * Set in application.properties as:
+     * ipsim.order-nsu.node-id=${IPSIM_NODE_ID:}
+     */
+    @Value("${ipsim.order-nsu.node-id:}")
+    private String nodeId;
+
+    /**
+     * @return Order NSU generator selected by ipsim.order-nsu.generator
+     */
+    @Bean
+    public OrderNsuGenerator orderNsuGenerator() {
+        return switch (generator) {
+            case "snowflake" -> new SnowflakeOrderNsuGenerator(snowflakeNodeId());
+            case "uuid" -> new UuidOrderNsuGenerator();
+            default -> throw new IllegalArgumentException("Unknown ipsim.order-nsu.generator: " + generator);
+        };
+    }
+
+    private int snowflakeNodeId() {
+        if (nodeId.isBlank()) {
+            throw new IllegalStateException("ipsim.order-nsu.node-id is not set for the snowflake generator: "
+                    + "define IPSIM_NODE_ID");
+        }
+        return Integer.parseInt(nodeId.trim());
+    }
+}
@@ -0,0 +1,100 @@
+package com.cloudwalk.ipsim.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for every repository method (DB save/find)
+ *
+ * Replaces Spring Boot's spring.data.repository.invocations timer
+ * (disabled in application.properties), which builds its tags on every
+ * call. Here the timers of a method are created on its first call and then
+ * looked up by repository and Method, so recording allocates nothing.
+ * Inherited methods (save, findById...) are the same Method object for
+ * every repository, hence the lookup per repository first.
+ *
+ * Metric: ipsim.repository.invocations, tagged repository, method and
+ * outcome (success, error). For Stream-returning methods only the query
+ * execution is timed, not the consumption of the stream.
+ */
+@Configuration
+public class RepositoryMetricsConfig {
+
+    /**
+     * Attaches the listener to every repository factory
+     *
+     * Static, and resolving the registry lazily, so that declaring a
+     * BeanPostProcessor does not initialize the meter registry early.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        RepositoryMetricsListener listener = new RepositoryMetricsListener(meterRegistry);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+
+    static final class RepositoryMetricsListener implements RepositoryMethodInvocationListener {
+
+        private static final int SUCCESS = 0;
+        private static final int ERROR = 1;
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<Class<?>, Map<Method, Timer[]>> timers = new ConcurrentHashMap<>();
+
+        RepositoryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void afterInvocation(RepositoryMethodInvocation invocation) {
+            Class<?> repository = invocation.getRepositoryInterface();
+            Map<Method, Timer[]> repositoryTimers = timers.get(repository);
+            if (repositoryTimers == null) {
+                repositoryTimers = timers.computeIfAbsent(repository, r -> new ConcurrentHashMap<>());
+            }
+            Timer[] methodTimers = repositoryTimers.get(invocation.getMethod());
+            if (methodTimers == null) {
+                methodTimers = repositoryTimers.computeIfAbsent(invocation.getMethod(),
+                        method -> register(repository, method));
+            }
+            RepositoryMethodInvocationResult result = invocation.getResult();
+            int outcome = result != null && result.getState() == RepositoryMethodInvocationResult.State.SUCCESS
+                    ? SUCCESS : ERROR;
+            methodTimers[outcome].record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        private Timer[] register(Class<?> repository, Method method) {
+            MeterRegistry registry = meterRegistry.getObject();
+            Timer[] methodTimers = new Timer[2];
+            methodTimers[SUCCESS] = timer(registry, repository, method, "success");
+            methodTimers[ERROR] = timer(registry, repository, method, "error");
+            return methodTimers;
+        }
+
+        private static Timer timer(MeterRegistry registry, Class<?> repository, Method method, String outcome) {
+            return Timer.builder("ipsim.repository.invocations")
+                    .description("Repository method latency")
+                    .tags("repository", repository.getSimpleName(), "method", method.getName(), "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.cloudwalk.ipsim.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (e.g. PendingTransactionReconciler)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
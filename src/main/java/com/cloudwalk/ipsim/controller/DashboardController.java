@@ -0,0 +1,36 @@
+package com.cloudwalk.ipsim.controller;
+
+import com.cloudwalk.ipsim.dto.DashboardSummaryDTO;
+import com.cloudwalk.ipsim.service.DashboardAggregationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardAggregationService dashboardAggregationService;
+
+    /**
+     * Pre-aggregated dashboard figures
+     *
+     * Counts and sums of amount / net amount by status, type, installments
+     * and creation hour. Served from in-memory counters, no database query.
+     *
+     * @param from Optional lower bound on creation time (ISO-8601), rounded down to the hour
+     * @param to Optional exclusive upper bound on creation time (ISO-8601)
+     * @return Dashboard summary
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<DashboardSummaryDTO> getSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(dashboardAggregationService.summary(from, to));
+    }
+}
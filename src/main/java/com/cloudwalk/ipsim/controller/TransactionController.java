@@ -1,106 +1,203 @@
 package com.cloudwalk.ipsim.controller;
 
+import com.cloudwalk.ipsim.dto.BatchPaymentRequestDTO;
+import com.cloudwalk.ipsim.dto.BatchPaymentResponseDTO;
+import com.cloudwalk.ipsim.dto.BatchPaymentResultDTO;
 import com.cloudwalk.ipsim.dto.PaymentRequestDTO;
+import com.cloudwalk.ipsim.dto.TransactionFilter;
 import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
-import com.cloudwalk.ipsim.model.Card;
 import com.cloudwalk.ipsim.model.Transaction;
 import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
 import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.cloudwalk.ipsim.service.BatchPaymentService;
 import com.cloudwalk.ipsim.service.PaymentService;
+import com.cloudwalk.ipsim.service.PaymentStatusStreamService;
+import com.cloudwalk.ipsim.service.TransactionCache;
+import com.cloudwalk.ipsim.service.TransactionQueryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/transactions")
-@CrossOrigin(origins = "*") // Allow frontend to call
+@CrossOrigin(origins = "*", exposedHeaders = TransactionController.NEXT_CURSOR_HEADER) // Allow frontend to call
 @RequiredArgsConstructor
 public class TransactionController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final PaymentService paymentService;
+    private final BatchPaymentService batchPaymentService;
     private final TransactionRepository transactionRepository;
+    private final TransactionQueryService transactionQueryService;
+    private final PaymentStatusStreamService paymentStatusStreamService;
+    private final TransactionCache transactionCache;
 
+    /**
+     * Accepts a payment; its InfinitePay checkout link is created in the
+     * background
+     *
+     * The response carries the order NSU in PENDING_CREATE status, without a
+     * checkout URL: it arrives on {@link #streamTransactionStatus} with the
+     * switch to PENDING. The request thread is released while the
+     * transaction is saved.
+     *
+     * @param request Payment payload from the simulator
+     * @return Deferred transaction details
+     */
     @PostMapping
-    public ResponseEntity<TransactionResponseDTO> processPayment(@Valid @RequestBody PaymentRequestDTO request) {
-        // Map DTO to Entity
-        Transaction transaction = new Transaction();
-        transaction.setAmount(request.getAmount());
-        transaction.setType(request.getType());
-        transaction.setInstallments(request.getInstallments());
-
-        // Create Card (Transient or Persistent - Logic here simplified)
-        Card card = new Card(request.getCardNumber(), request.getCardHolder(), request.getCardExpiry());
-        transaction.setCard(card);
+    public CompletableFuture<ResponseEntity<TransactionResponseDTO>> processPayment(
+            @Valid @RequestBody PaymentRequestDTO request) {
+        Transaction transaction = paymentService.newTransaction(request);
 
         // Process
-        Transaction processed = paymentService.processPayment(transaction);
-
-        // Map Response - Now includes checkout URL for InfinitePay
-        String message = switch (processed.getStatus()) {
-            case APPROVED -> "Transaction approved successfully";
-            case PENDING -> "Checkout link created. Please complete payment.";
-            case DENIED -> "Transaction denied";
-        };
+        return paymentService.processPaymentAsync(transaction)
+                .thenApply(processed -> ResponseEntity.ok(
+                        TransactionResponseDTO.from(processed, statusMessage(processed.getStatus()))));
+    }
 
-        TransactionResponseDTO response = new TransactionResponseDTO(
-                processed.getId(),
-                processed.getAmount(),
-                processed.getNetAmount(),
-                processed.getStatus(),
-                processed.getTimestamp(),
-                message,
-                processed.getCheckoutUrl(),  // InfinitePay checkout link
-                processed.getOrderNsu(),
-                processed.getReceiptUrl());
-
-        return ResponseEntity.ok(response);
+    /**
+     * Creates many payments at once
+     *
+     * The transactions are inserted in JDBC batches as PENDING_CREATE; their
+     * checkout links are created in the background. Items succeed or fail
+     * independently, invalid ones included (see {@link BatchPaymentService}):
+     * the response always lists one result per submitted payment, in order.
+     *
+     * @param request Up to {@value BatchPaymentRequestDTO#MAX_PAYMENTS} payments
+     * @return Deferred per-item results
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<BatchPaymentResponseDTO>> processPaymentBatch(
+            @Valid @RequestBody BatchPaymentRequestDTO request) {
+        return batchPaymentService.processBatch(request.getPayments())
+                .thenApply(results -> {
+                    List<BatchPaymentResultDTO> items = results.stream()
+                            .map(result -> new BatchPaymentResultDTO(
+                                    result.index(),
+                                    result.succeeded(),
+                                    result.transaction() != null
+                                            ? TransactionResponseDTO.from(result.transaction(),
+                                                    statusMessage(result.transaction().getStatus()))
+                                            : null,
+                                    result.error()))
+                            .toList();
+                    int succeeded = (int) items.stream().filter(BatchPaymentResultDTO::isSuccess).count();
+                    return ResponseEntity.ok(new BatchPaymentResponseDTO(
+                            items.size(), succeeded, items.size() - succeeded, items));
+                });
     }
 
+    /**
+     * Lists transactions, newest first, one keyset page at a time
+     *
+     * The response body stays a plain JSON array. When more rows exist the
+     * cursor for the next page is returned in the X-Next-Cursor header.
+     *
+     * @param status Optional status filter
+     * @param type Optional type filter
+     * @param from Optional inclusive lower bound on creation time (ISO-8601)
+     * @param to Optional exclusive upper bound on creation time (ISO-8601)
+     * @param cursor Value of X-Next-Cursor from the previous page
+     * @param limit Page size (max 500)
+     * @return One page of transactions
+     */
     @GetMapping
-    public ResponseEntity<List<TransactionResponseDTO>> getAllTransactions() {
-        List<TransactionResponseDTO> list = transactionRepository.findAll().stream()
-                .map(t -> new TransactionResponseDTO(
-                        t.getId(),
-                        t.getAmount(),
-                        t.getNetAmount(),
-                        t.getStatus(),
-                        t.getTimestamp(),
-                        "",
-                        t.getCheckoutUrl(),
-                        t.getOrderNsu(),
-                        t.getReceiptUrl()))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(list);
+    public ResponseEntity<List<TransactionResponseDTO>> getAllTransactions(
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        TransactionQueryService.TransactionPage page = transactionQueryService.findPage(
+                new TransactionFilter(status, type, from, to), cursor, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Exports every matching transaction as newline-delimited JSON
+     *
+     * The body is streamed straight from a database cursor, so the export
+     * size is not limited by server memory.
+     *
+     * @return Streaming NDJSON response
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        TransactionFilter filter = new TransactionFilter(status, type, from, to);
+        StreamingResponseBody body = out -> transactionQueryService.exportNdjson(filter, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     /**
-     * Get transaction by order NSU (for status polling)
+     * Get transaction by order NSU
      *
-     * Frontend can poll this endpoint to check if webhook has updated status
+     * One-off lookup. For waiting on a status change, subscribe to
+     * {@link #streamTransactionStatus} instead of polling this endpoint.
      *
      * @param orderNsu Your internal order identifier
      * @return Transaction details
      */
     @GetMapping("/order/{orderNsu}")
     public ResponseEntity<TransactionResponseDTO> getTransactionByOrderNsu(@PathVariable String orderNsu) {
-        Transaction t = transactionRepository.findByOrderNsu(orderNsu)
-                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        return ResponseEntity.ok(findSnapshot(orderNsu));
+    }
+
+    /**
+     * Server-Sent Events stream of status changes for one order
+     *
+     * Emits a "status" event with the current state on connect, then one per
+     * transition: checkout link created (PENDING, with its URL), then the
+     * webhook or a manual status check. The
+     * stream completes once the transaction reaches a terminal status.
+     *
+     * @param orderNsu Your internal order identifier
+     * @return SSE stream of TransactionResponseDTO payloads
+     */
+    @GetMapping(value = "/order/{orderNsu}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactionStatus(@PathVariable String orderNsu) {
+        return paymentStatusStreamService.subscribe(orderNsu, () -> findSnapshot(orderNsu));
+    }
+
+    private static String statusMessage(TransactionStatus status) {
+        return switch (status) {
+            case APPROVED -> "Transaction approved successfully";
+            case PENDING -> "Checkout link created. Please complete payment.";
+            case PENDING_CREATE -> "Payment accepted. Creating checkout link...";
+            case DENIED -> "Transaction denied";
+        };
+    }
 
-        TransactionResponseDTO response = new TransactionResponseDTO(
-                t.getId(),
-                t.getAmount(),
-                t.getNetAmount(),
-                t.getStatus(),
-                t.getTimestamp(),
-                "",
-                t.getCheckoutUrl(),
-                t.getOrderNsu(),
-                t.getReceiptUrl());
-
-        return ResponseEntity.ok(response);
+    /**
+     * Current state of an order, served from the hot cache when possible
+     */
+    private TransactionResponseDTO findSnapshot(String orderNsu) {
+        return transactionCache.get(orderNsu, transactionRepository::findSnapshotByOrderNsu)
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
     }
 }
@@ -1,18 +1,16 @@
 package com.cloudwalk.ipsim.controller;
 
 import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayWebhookPayload;
-import com.cloudwalk.ipsim.model.Transaction;
 import com.cloudwalk.ipsim.model.TransactionStatus;
-import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.cloudwalk.ipsim.service.TransactionCache;
+import com.cloudwalk.ipsim.service.WebhookIdempotencyGuard;
+import com.cloudwalk.ipsim.service.WebhookIngestionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
-
 /**
  * Controller for receiving webhooks from InfinitePay
  *
@@ -27,6 +25,9 @@ import java.util.Optional;
  * Expected behavior:
  * - Return 200 OK on success (stops retries)
  * - Return 400 Bad Request to trigger retry
+ *
+ * The webhook is only validated and durably queued here; the transaction
+ * itself is updated asynchronously by {@link WebhookIngestionService}.
  */
 @Slf4j
 @RestController
@@ -34,18 +35,23 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class WebhookController {
 
-    private final TransactionRepository transactionRepository;
+    private final WebhookIngestionService webhookIngestionService;
+    private final TransactionCache transactionCache;
+    private final WebhookIdempotencyGuard webhookIdempotencyGuard;
 
     /**
      * Receives payment completion webhook from InfinitePay
      *
      * Flow:
      * 1. Receive webhook payload
-     * 2. Find transaction by order_nsu
-     * 3. Update transaction status to APPROVED
-     * 4. Store InfinitePay transaction details
+     * 2. Validate it (order_nsu is required)
+     * 3. Reject duplicates (in-memory idempotency guard)
+     * 4. Append it to the durable webhook queue
      * 5. Return 200 OK
      *
+     * The consumer then finds the transaction by order_nsu, updates its
+     * status to APPROVED and stores the InfinitePay transaction details.
+     *
      * @param payload Webhook data from InfinitePay
      * @return ResponseEntity with status code
      */
@@ -63,46 +69,34 @@ public class WebhookController {
         }
 
         try {
-            // Find transaction by order NSU
-            Optional<Transaction> optionalTransaction = transactionRepository
-                    .findByOrderNsu(payload.getOrderNsu());
-
-            if (optionalTransaction.isEmpty()) {
-                log.warn("Transaction not found for order_nsu: {}", payload.getOrderNsu());
-                // Return 200 to prevent retries for non-existent orders
-                return ResponseEntity.ok("Transaction not found, but acknowledged");
-            }
-
-            Transaction transaction = optionalTransaction.get();
-
-            // Check if already processed
-            if (transaction.getStatus() == TransactionStatus.APPROVED) {
-                log.info("Transaction already approved (duplicate webhook). Order: {}",
+            // Fast path: duplicate webhook for an order we already know is approved
+            if (transactionCache.getIfPresent(payload.getOrderNsu())
+                    .filter(t -> t.getStatus() == TransactionStatus.APPROVED)
+                    .isPresent()) {
+                log.info("Transaction already approved (duplicate webhook, cached). Order: {}",
                         payload.getOrderNsu());
                 return ResponseEntity.ok("Already processed");
             }
 
-            // Update transaction with webhook data
-            transaction.setStatus(TransactionStatus.APPROVED);
-            transaction.setInfinitePaySlug(payload.getInvoiceSlug());
-            transaction.setInfinitePayTransactionNsu(payload.getTransactionNsu());
-            transaction.setReceiptUrl(payload.getReceiptUrl());
-            transaction.setInstallments(payload.getInstallments());
-            transaction.setTimestamp(LocalDateTime.now());
-
-            // Calculate actual amount received (already net of fees from InfinitePay)
-            // Note: InfinitePay handles the fee calculation internally
-            // The webhook amount is what the merchant receives
-
-            transactionRepository.save(transaction);
+            // Concurrent or repeated delivery of the same webhook
+            if (!webhookIdempotencyGuard.tryAcquire(payload)) {
+                log.info("Duplicate webhook rejected. Order: {}", payload.getOrderNsu());
+                return ResponseEntity.ok("Already processed");
+            }
 
-            log.info("Transaction updated successfully. Order: {}, Status: APPROVED",
-                    payload.getOrderNsu());
+            // Durably queue, the transaction is updated in the background
+            try {
+                webhookIngestionService.enqueue(payload);
+            } catch (Exception e) {
+                // Not queued: let InfinitePay's retry through
+                webhookIdempotencyGuard.release(payload);
+                throw e;
+            }
 
-            return ResponseEntity.ok("Webhook processed successfully");
+            return ResponseEntity.ok("Webhook accepted");
 
         } catch (Exception e) {
-            log.error("Error processing webhook for order: " + payload.getOrderNsu(), e);
+            log.error("Error processing webhook for order: {}", payload.getOrderNsu(), e);
             // Return 400 to trigger InfinitePay to retry
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error processing webhook: " + e.getMessage());
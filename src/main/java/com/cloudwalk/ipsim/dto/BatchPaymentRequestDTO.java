@@ -0,0 +1,23 @@
+package com.cloudwalk.ipsim.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchPaymentRequestDTO {
+
+    /**
+     * Upper bound on payments per request, keeps one batch well within
+     * spring.mvc.async.request-timeout
+     */
+    public static final int MAX_PAYMENTS = 500;
+
+    @NotEmpty(message = "At least one payment is required")
+    @Size(max = MAX_PAYMENTS, message = "At most " + MAX_PAYMENTS + " payments per batch")
+    private List<PaymentRequestDTO> payments; // Validated one by one, see BatchPaymentService
+}
@@ -0,0 +1,16 @@
+package com.cloudwalk.ipsim.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BatchPaymentResponseDTO {
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BatchPaymentResultDTO> results; // Same order as the request
+}
@@ -0,0 +1,22 @@
+package com.cloudwalk.ipsim.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one payment of a batch
+ *
+ * - success: payment accepted, transaction is PENDING_CREATE until its
+ *   checkout link is created in the background
+ * - failure: nothing was recorded (invalid item, checkout backlog full or
+ *   database error), the item can be resubmitted
+ */
+@Getter
+@AllArgsConstructor
+public class BatchPaymentResultDTO {
+
+    private int index;                          // Position in the request list
+    private boolean success;
+    private TransactionResponseDTO transaction; // Null when nothing was recorded
+    private String error;                       // Null on success
+}
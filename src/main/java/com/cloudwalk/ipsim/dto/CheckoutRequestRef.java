@@ -0,0 +1,29 @@
+package com.cloudwalk.ipsim.dto;
+
+import com.cloudwalk.ipsim.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * The few columns needed to create the checkout link of a PENDING_CREATE
+ * transaction
+ *
+ * Selected with one join on cards, so neither entity is loaded by the
+ * outbox relay.
+ *
+ * @param id Transaction id
+ * @param orderNsu Internal order identifier
+ * @param amount Amount to charge
+ * @param type Payment type
+ * @param installments 1 for debit/credit-spot
+ * @param holderName Card holder, sent as customer name
+ */
+public record CheckoutRequestRef(
+        UUID id,
+        String orderNsu,
+        BigDecimal amount,
+        TransactionType type,
+        int installments,
+        String holderName) {
+}
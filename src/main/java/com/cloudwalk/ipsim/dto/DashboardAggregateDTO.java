@@ -0,0 +1,15 @@
+package com.cloudwalk.ipsim.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class DashboardAggregateDTO {
+
+    private long count;
+    private BigDecimal amount;
+    private BigDecimal netAmount; // Known once InfinitePay confirms the payment
+}
@@ -0,0 +1,20 @@
+package com.cloudwalk.ipsim.dto;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Aggregates of the transactions created in one hour
+ */
+@Getter
+@AllArgsConstructor
+public class DashboardBucketDTO {
+
+    private LocalDateTime start;
+    private DashboardAggregateDTO total;
+    private Map<TransactionStatus, DashboardAggregateDTO> byStatus;
+}
@@ -0,0 +1,20 @@
+package com.cloudwalk.ipsim.dto;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class DashboardSummaryDTO {
+
+    private DashboardAggregateDTO total;
+    private Map<TransactionStatus, DashboardAggregateDTO> byStatus;
+    private Map<TransactionType, DashboardAggregateDTO> byType;
+    private Map<Integer, DashboardAggregateDTO> byInstallments;
+    private List<DashboardBucketDTO> buckets; // Hourly, oldest first
+}
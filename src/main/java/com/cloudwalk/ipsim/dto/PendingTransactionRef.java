@@ -0,0 +1,24 @@
+package com.cloudwalk.ipsim.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The few columns needed to check a PENDING transaction upstream
+ *
+ * Selected straight from the transactions table, so no entity (or card)
+ * is loaded while scanning.
+ *
+ * @param id Transaction id (keyset tie-breaker)
+ * @param orderNsu Internal order identifier
+ * @param infinitePaySlug InfinitePay invoice slug
+ * @param infinitePayTransactionNsu InfinitePay transaction NSU, usually still null
+ * @param timestamp Creation time of the checkout
+ */
+public record PendingTransactionRef(
+        UUID id,
+        String orderNsu,
+        String infinitePaySlug,
+        String infinitePayTransactionNsu,
+        LocalDateTime timestamp) {
+}
@@ -0,0 +1,25 @@
+package com.cloudwalk.ipsim.dto;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Columns needed to rebuild the dashboard aggregates of one transaction
+ *
+ * @param createdAt Creation time, selects the hourly bucket
+ * @param timestamp Last status change
+ */
+public record TransactionAggregateRef(
+        UUID id,
+        TransactionStatus status,
+        TransactionType type,
+        int installments,
+        BigDecimal amount,
+        BigDecimal netAmount,
+        LocalDateTime createdAt,
+        LocalDateTime timestamp) {
+}
@@ -0,0 +1,23 @@
+package com.cloudwalk.ipsim.dto;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for transaction listing and export
+ *
+ * Every field may be null, meaning "no restriction".
+ *
+ * @param status Only transactions in this status
+ * @param type Only transactions of this type
+ * @param from Inclusive lower bound on creation time
+ * @param to Exclusive upper bound on creation time
+ */
+public record TransactionFilter(
+        TransactionStatus status,
+        TransactionType type,
+        LocalDateTime from,
+        LocalDateTime to) {
+}
@@ -1,5 +1,6 @@
 package com.cloudwalk.ipsim.dto;
 
+import com.cloudwalk.ipsim.model.Transaction;
 import com.cloudwalk.ipsim.model.TransactionStatus;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -16,11 +17,35 @@ public class TransactionResponseDTO {
     private BigDecimal amount;
     private BigDecimal netAmount;
     private TransactionStatus status;
-    private LocalDateTime timestamp;
+    private LocalDateTime timestamp; // Last status change
+    private LocalDateTime createdAt; // Never changes, listing order
     private String message;
 
     // InfinitePay Integration Fields
     private String checkoutUrl;  // InfinitePay payment link to open in browser
     private String orderNsu;      // Internal order tracking ID
     private String receiptUrl;    // Payment receipt URL (after successful payment)
+
+    /**
+     * Maps a transaction entity to its API representation
+     *
+     * Does not touch the card, so it is safe on a detached entity.
+     *
+     * @param t Transaction entity
+     * @param message Human readable message for the client
+     * @return Response DTO
+     */
+    public static TransactionResponseDTO from(Transaction t, String message) {
+        return new TransactionResponseDTO(
+                t.getId(),
+                t.getAmount(),
+                t.getNetAmount(),
+                t.getStatus(),
+                t.getTimestamp(),
+                t.getCreatedAt(),
+                message,
+                t.getCheckoutUrl(),  // InfinitePay checkout link
+                t.getOrderNsu(),
+                t.getReceiptUrl());
+    }
 }
@@ -0,0 +1,301 @@
+package com.cloudwalk.ipsim.emulator;
+
+import com.cloudwalk.ipsim.dto.infinitepay.CheckoutItemDTO;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutRequest;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutResponse;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayWebhookPayload;
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckRequest;
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckResponse;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Local stand-in for the InfinitePay Checkout API (profile "emulator")
+ *
+ * Lets the whole checkout -> payment -> webhook loop run offline, without
+ * an InfinitePay account or ngrok.
+ *
+ * Checkout links and status checks answer after a log-normal delay; a
+ * fraction of them fail with 500 or hang past the client timeout. Each
+ * created checkout is "paid" after a simulated payment delay (or abandoned),
+ * then the webhook is POSTed to the webhook_url of the checkout request,
+ * with retries on non-2xx answers.
+ *
+ * Since it runs inside the application, it also observes the resulting
+ * status changes and times:
+ * - ipsim.emulator.webhook.apply: webhook sent -> transaction APPROVED
+ * - ipsim.emulator.settlement: checkout requested -> transaction APPROVED
+ */
+@Slf4j
+@Service
+@Profile("emulator")
+public class InfinitePayEmulator {
+
+    private final WebClient webhookClient;
+    private final LatencyDistribution latency;
+    private final LatencyDistribution paymentDelay;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final Duration timeoutDelay;
+    private final double approvalRate;
+    private final double webhookLossRate;
+    private final int webhookMaxAttempts;
+    private final Duration webhookRetryBackoff;
+
+    /**
+     * Checkouts created, by order_nsu
+     */
+    private final Cache<String, Invoice> invoices;
+
+    private final AtomicLong slugs = new AtomicLong();
+    private final Counter paymentsScheduled;
+    private final Counter webhooksDelivered;
+    private final Counter webhooksFailed;
+    private final Timer webhookApply;
+    private final Timer settlement;
+
+    /**
+     * Emulated checkout
+     *
+     * @param createdNanos When the checkout link was requested
+     * @param webhookSentNanos When the first webhook attempt was sent, 0 before
+     */
+    private record Invoice(String slug, long amount, List<CheckoutItemDTO> items, String webhookUrl,
+                           long createdNanos, String transactionNsu, long webhookSentNanos) {
+
+        boolean paid() {
+            return transactionNsu != null;
+        }
+    }
+
+    /**
+     * Set in application-emulator.properties as:
+     * ipsim.emulator.latency.median=80ms
+     * ipsim.emulator.latency.p99=400ms
+     * ipsim.emulator.error-rate=0.01
+     * ipsim.emulator.timeout-rate=0.001
+     * ipsim.emulator.timeout-delay=15s
+     * ipsim.emulator.payment.approval-rate=0.9
+     * ipsim.emulator.payment.delay.median=2s
+     * ipsim.emulator.payment.delay.p99=10s
+     * ipsim.emulator.webhook.loss-rate=0
+     * ipsim.emulator.webhook.max-attempts=3
+     * ipsim.emulator.webhook.retry-backoff=1s
+     * ipsim.emulator.max-invoices=1000000
+     */
+    public InfinitePayEmulator(
+            WebClient.Builder webClientBuilder,
+            @Value("${ipsim.emulator.latency.median:80ms}") Duration latencyMedian,
+            @Value("${ipsim.emulator.latency.p99:400ms}") Duration latencyP99,
+            @Value("${ipsim.emulator.error-rate:0.01}") double errorRate,
+            @Value("${ipsim.emulator.timeout-rate:0.001}") double timeoutRate,
+            @Value("${ipsim.emulator.timeout-delay:15s}") Duration timeoutDelay,
+            @Value("${ipsim.emulator.payment.approval-rate:0.9}") double approvalRate,
+            @Value("${ipsim.emulator.payment.delay.median:2s}") Duration paymentDelayMedian,
+            @Value("${ipsim.emulator.payment.delay.p99:10s}") Duration paymentDelayP99,
+            @Value("${ipsim.emulator.webhook.loss-rate:0}") double webhookLossRate,
+            @Value("${ipsim.emulator.webhook.max-attempts:3}") int webhookMaxAttempts,
+            @Value("${ipsim.emulator.webhook.retry-backoff:1s}") Duration webhookRetryBackoff,
+            @Value("${ipsim.emulator.max-invoices:1000000}") long maxInvoices,
+            MeterRegistry meterRegistry) {
+
+        if (errorRate + timeoutRate > 1) {
+            throw new IllegalArgumentException("ipsim.emulator.error-rate + timeout-rate must not exceed 1");
+        }
+        if (webhookMaxAttempts < 1) {
+            throw new IllegalArgumentException("ipsim.emulator.webhook.max-attempts must be at least 1");
+        }
+        this.webhookClient = webClientBuilder.build();
+        this.latency = LatencyDistribution.of(latencyMedian, latencyP99);
+        this.paymentDelay = LatencyDistribution.of(paymentDelayMedian, paymentDelayP99);
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeoutDelay = timeoutDelay;
+        this.approvalRate = approvalRate;
+        this.webhookLossRate = webhookLossRate;
+        this.webhookMaxAttempts = webhookMaxAttempts;
+        this.webhookRetryBackoff = webhookRetryBackoff;
+
+        this.invoices = Caffeine.newBuilder()
+                .maximumSize(maxInvoices)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+
+        this.paymentsScheduled = Counter.builder("ipsim.emulator.payments.scheduled")
+                .description("Emulated checkouts that will be paid")
+                .register(meterRegistry);
+        this.webhooksDelivered = Counter.builder("ipsim.emulator.webhooks")
+                .tag("outcome", "delivered")
+                .description("Emulated webhooks acknowledged with 2xx")
+                .register(meterRegistry);
+        this.webhooksFailed = Counter.builder("ipsim.emulator.webhooks")
+                .tag("outcome", "failed")
+                .description("Emulated webhooks given up after every attempt")
+                .register(meterRegistry);
+        this.webhookApply = latencyTimer(meterRegistry, "ipsim.emulator.webhook.apply",
+                "Webhook sent until the transaction is APPROVED");
+        this.settlement = latencyTimer(meterRegistry, "ipsim.emulator.settlement",
+                "Checkout requested until the transaction is APPROVED");
+
+        log.warn("InfinitePay emulator enabled: no real payment will be processed");
+    }
+
+    /**
+     * POST /invoices/public/checkout/links
+     */
+    public Mono<ResponseEntity<InfinitePayCheckoutResponse>> createCheckout(InfinitePayCheckoutRequest request) {
+        long receivedNanos = System.nanoTime();
+        return respond(() -> {
+            if (request.getOrderNsu() == null || request.getItems() == null || request.getItems().isEmpty()) {
+                return ResponseEntity.badRequest().body(InfinitePayCheckoutResponse.builder()
+                        .success(false)
+                        .message("order_nsu and at least one item are required")
+                        .build());
+            }
+
+            String slug = "emu-" + slugs.incrementAndGet();
+            long amount = request.getItems().stream()
+                    .mapToLong(item -> item.getPrice() * item.getQuantity())
+                    .sum();
+            invoices.put(request.getOrderNsu(), new Invoice(
+                    slug, amount, request.getItems(), request.getWebhookUrl(), receivedNanos, null, 0));
+            schedulePayment(request.getOrderNsu());
+
+            return ResponseEntity.ok(InfinitePayCheckoutResponse.builder()
+                    .checkoutUrl("https://checkout.emulator.local/c/" + slug)
+                    .slug(slug)
+                    .success(true)
+                    .build());
+        }, () -> InfinitePayCheckoutResponse.builder().success(false).message("Emulated upstream error").build());
+    }
+
+    /**
+     * POST /invoices/public/checkout/payment_check
+     */
+    public Mono<ResponseEntity<PaymentStatusCheckResponse>> checkPayment(PaymentStatusCheckRequest request) {
+        return respond(() -> {
+            Invoice invoice = request.getOrderNsu() == null ? null : invoices.getIfPresent(request.getOrderNsu());
+            if (invoice == null || !invoice.paid()) {
+                return ResponseEntity.ok(PaymentStatusCheckResponse.builder().success(true).paid(false).build());
+            }
+            return ResponseEntity.ok(PaymentStatusCheckResponse.builder()
+                    .success(true)
+                    .paid(true)
+                    .amount(invoice.amount())
+                    .installments(1)
+                    .captureMethod("credit_card")
+                    .build());
+        }, () -> PaymentStatusCheckResponse.builder().success(false).build());
+    }
+
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        if (event.status() != TransactionStatus.APPROVED || event.orderNsu() == null) {
+            return;
+        }
+        Invoice invoice = invoices.getIfPresent(event.orderNsu());
+        if (invoice == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        settlement.record(now - invoice.createdNanos(), TimeUnit.NANOSECONDS);
+        if (invoice.webhookSentNanos() != 0) {
+            webhookApply.record(now - invoice.webhookSentNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Applies the latency, error and timeout distributions to a response
+     *
+     * A timed out call never reaches the handler: nothing is created.
+     */
+    private <T> Mono<ResponseEntity<T>> respond(Supplier<ResponseEntity<T>> handler, Supplier<T> errorBody) {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < timeoutRate) {
+            return Mono.delay(timeoutDelay)
+                    .map(tick -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).<T>build());
+        }
+        Duration delay = latency.sample(ThreadLocalRandom.current());
+        if (roll < timeoutRate + errorRate) {
+            return Mono.delay(delay)
+                    .map(tick -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorBody.get()));
+        }
+        return Mono.delay(delay).map(tick -> handler.get());
+    }
+
+    private void schedulePayment(String orderNsu) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() >= approvalRate) {
+            return; // Abandoned checkout, stays unpaid
+        }
+        paymentsScheduled.increment();
+        boolean lost = random.nextDouble() < webhookLossRate;
+
+        Mono.delay(paymentDelay.sample(random))
+                .subscribe(tick -> {
+                    Invoice invoice = invoices.asMap().computeIfPresent(orderNsu, (key, unpaid) -> new Invoice(
+                            unpaid.slug(), unpaid.amount(), unpaid.items(), unpaid.webhookUrl(), unpaid.createdNanos(),
+                            UUID.randomUUID().toString(), lost ? 0 : System.nanoTime()));
+                    if (invoice != null && !lost && invoice.webhookUrl() != null) {
+                        sendWebhook(orderNsu, invoice);
+                    }
+                });
+    }
+
+    private void sendWebhook(String orderNsu, Invoice invoice) {
+        InfinitePayWebhookPayload payload = InfinitePayWebhookPayload.builder()
+                .invoiceSlug(invoice.slug())
+                .amount(invoice.amount())
+                .installments(1)
+                .captureMethod("credit_card")
+                .transactionNsu(invoice.transactionNsu())
+                .orderNsu(orderNsu)
+                .receiptUrl("https://checkout.emulator.local/r/" + invoice.slug())
+                .items(invoice.items())
+                .build();
+
+        webhookClient.post()
+                .uri(invoice.webhookUrl())
+                .bodyValue(payload)
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.backoff(webhookMaxAttempts - 1, webhookRetryBackoff))
+                .subscribe(
+                        response -> webhooksDelivered.increment(),
+                        e -> {
+                            webhooksFailed.increment();
+                            log.warn("Emulated webhook for order {} failed: {}", orderNsu, e.getMessage());
+                        });
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .distributionStatisticExpiry(Duration.ofMinutes(10))
+                .register(meterRegistry);
+    }
+}
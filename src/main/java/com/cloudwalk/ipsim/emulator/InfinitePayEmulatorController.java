@@ -0,0 +1,42 @@
+package com.cloudwalk.ipsim.emulator;
+
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutRequest;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutResponse;
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckRequest;
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * InfinitePay Checkout API endpoints served by {@link InfinitePayEmulator}
+ *
+ * Only registered with the "emulator" profile, which points
+ * infinitepay.api.base-url here (see application-emulator.properties).
+ * Responses are deferred, so slow emulated calls hold no request thread.
+ */
+@RestController
+@Profile("emulator")
+@RequestMapping("/emulator/infinitepay/invoices/public/checkout")
+@RequiredArgsConstructor
+public class InfinitePayEmulatorController {
+
+    private final InfinitePayEmulator emulator;
+
+    @PostMapping("/links")
+    public Mono<ResponseEntity<InfinitePayCheckoutResponse>> createCheckoutLink(
+            @RequestBody InfinitePayCheckoutRequest request) {
+        return emulator.createCheckout(request);
+    }
+
+    @PostMapping("/payment_check")
+    public Mono<ResponseEntity<PaymentStatusCheckResponse>> checkPayment(
+            @RequestBody PaymentStatusCheckRequest request) {
+        return emulator.checkPayment(request);
+    }
+}
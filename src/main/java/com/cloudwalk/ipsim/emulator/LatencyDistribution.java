@@ -0,0 +1,47 @@
+package com.cloudwalk.ipsim.emulator;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Log-normal delay distribution defined by its median and 99th percentile
+ *
+ * Network and service latencies are right-skewed: most calls are close to
+ * the median, a few are much slower. A log-normal reproduces that long tail
+ * with two intuitive parameters.
+ *
+ * With p99 <= median every sample is the median (constant delay).
+ */
+public final class LatencyDistribution {
+
+    // 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final double mu;
+    private final double sigma;
+
+    private LatencyDistribution(double mu, double sigma) {
+        this.mu = mu;
+        this.sigma = sigma;
+    }
+
+    /**
+     * @param median Half of the samples are below this
+     * @param p99 99% of the samples are below this
+     */
+    public static LatencyDistribution of(Duration median, Duration p99) {
+        if (median.isNegative() || median.isZero()) {
+            return new LatencyDistribution(Double.NEGATIVE_INFINITY, 0);
+        }
+        double medianNanos = median.toNanos();
+        double sigma = p99.compareTo(median) > 0 ? Math.log(p99.toNanos() / medianNanos) / Z_99 : 0;
+        return new LatencyDistribution(Math.log(medianNanos), sigma);
+    }
+
+    public Duration sample(RandomGenerator random) {
+        if (mu == Double.NEGATIVE_INFINITY) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+    }
+}
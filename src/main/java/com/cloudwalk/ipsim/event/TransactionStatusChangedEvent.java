@@ -0,0 +1,66 @@
+package com.cloudwalk.ipsim.event;
+
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published on the in-process event bus whenever a transaction is persisted
+ * in a new status
+ *
+ * Carries an immutable copy of the transaction so listeners never touch the
+ * JPA entity (which may still be in use by the publisher).
+ *
+ * @param previousStatus Status before the change, null when the transaction was just created
+ * @param previousInstallments Installments before the change: an approval may replace them with
+ *                             the ones actually paid
+ * @param createdAt Creation time, unlike timestamp it never changes
+ */
+public record TransactionStatusChangedEvent(
+        UUID transactionId,
+        String orderNsu,
+        TransactionStatus previousStatus,
+        TransactionStatus status,
+        TransactionType type,
+        int installments,
+        int previousInstallments,
+        BigDecimal amount,
+        BigDecimal netAmount,
+        LocalDateTime timestamp,
+        String checkoutUrl,
+        String receiptUrl,
+        LocalDateTime createdAt) {
+
+    public static TransactionStatusChangedEvent of(Transaction transaction, TransactionStatus previousStatus) {
+        return of(transaction, previousStatus, transaction.getInstallments());
+    }
+
+    public static TransactionStatusChangedEvent of(Transaction transaction, TransactionStatus previousStatus,
+                                                   int previousInstallments) {
+        return new TransactionStatusChangedEvent(
+                transaction.getId(),
+                transaction.getOrderNsu(),
+                previousStatus,
+                transaction.getStatus(),
+                transaction.getType(),
+                transaction.getInstallments(),
+                previousInstallments,
+                transaction.getAmount(),
+                transaction.getNetAmount(),
+                transaction.getTimestamp(),
+                transaction.getCheckoutUrl(),
+                transaction.getReceiptUrl(),
+                transaction.getCreatedAt());
+    }
+
+    /**
+     * @return true if no further status change is expected
+     */
+    public boolean isTerminal() {
+        return status.isTerminal();
+    }
+}
@@ -7,6 +7,12 @@ import lombok.Setter;
 
 import java.util.UUID;
 
+/**
+ * A distinct card, stored once and shared by all its transactions
+ *
+ * The PAN is not stored: the card is identified by its vault token (see
+ * CardVaultService) and only the last 4 digits are kept for display.
+ */
 @Entity
 @Table(name = "cards")
 @Getter
@@ -15,11 +21,14 @@ import java.util.UUID;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid // UUIDv7, see UuidV7
     private UUID id;
 
-    @Column(nullable = false)
-    private String pan; // Primary Account Number
+    @Column(nullable = false, unique = true, length = 64)
+    private String token; // Keyed hash of PAN + expiry
+
+    @Column(nullable = false, length = 4)
+    private String last4;
 
     @Column(nullable = false)
     private String holderName;
@@ -31,8 +40,9 @@ public class Card {
     // For this simulator, we might not persist it, just use in DTO.
     // Excluded from here to follow "simplified PCI-DSS".
 
-    public Card(String pan, String holderName, String expiryDate) {
-        this.pan = pan;
+    public Card(String token, String last4, String holderName, String expiryDate) {
+        this.token = token;
+        this.last4 = last4;
         this.holderName = holderName;
         this.expiryDate = expiryDate;
     }
@@ -0,0 +1,76 @@
+package com.cloudwalk.ipsim.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A checkout link still to be created at InfinitePay
+ *
+ * Inserted together with its PENDING_CREATE transaction and deleted once the
+ * link exists (or the payment is given up). See CheckoutOutboxService.
+ *
+ * The id is the transaction id, assigned before persisting: implements
+ * Persistable so saveAll inserts new entries without a select first.
+ */
+@Entity
+@Table(name = "checkout_outbox", indexes = {
+        @Index(name = "idx_checkout_outbox_next_attempt_at", columnList = "nextAttemptAt"),
+        @Index(name = "idx_checkout_outbox_claim_token", columnList = "claimToken")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class CheckoutOutboxEntry implements Persistable<UUID> {
+
+    @Id
+    private UUID transactionId;
+
+    @Column(nullable = false)
+    private int attempts; // Failed upstream calls so far
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt; // Not relayed before this; pushed forward while claimed
+
+    @Column
+    private UUID claimToken; // Relay batch currently holding the entry
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    public CheckoutOutboxEntry(UUID transactionId, LocalDateTime now) {
+        this.transactionId = transactionId;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+    }
+
+    @Override
+    public UUID getId() {
+        return transactionId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
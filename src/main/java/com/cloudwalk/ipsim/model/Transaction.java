@@ -9,15 +9,28 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Schema is owned by the Flyway migrations in db/migration; the indexes
+ * below mirror them.
+ */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // Reconciler scan: PENDING transactions older than a cutoff
+        @Index(name = "idx_transactions_status_timestamp", columnList = "status, timestamp"),
+        // Listing and export: newest first, keyset on (createdAt, id)
+        @Index(name = "idx_transactions_created_at_id", columnList = "createdAt desc, id desc"),
+        // A payment can only ever approve one transaction
+        @Index(name = "uk_transactions_infinite_pay_transaction_nsu",
+                columnList = "infinitePayTransactionNsu", unique = true),
+        @Index(name = "idx_transactions_card_id", columnList = "card_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid // UUIDv7, see UuidV7
     private UUID id;
 
     @Column(nullable = false)
@@ -38,9 +51,14 @@ public class Transaction {
     private TransactionStatus status;
 
     @Column(nullable = false)
-    private LocalDateTime timestamp;
+    private LocalDateTime timestamp; // Last status change, set by every path that changes the status
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Resolved through CardVaultService, shared across transactions.
+    // Lazy: none of the read paths need card data
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "card_id", nullable = false)
     private Card card;
 
@@ -51,8 +69,8 @@ public class Transaction {
     /**
      * Your internal order identifier
      *
-     * Format: ORD-{timestamp}-{uuid}
-     * Example: ORD-1708234567-a1b2c3
+     * Format: ORD-{timestamp}-{suffix} (see OrderNsuGenerator)
+     * Example: ORD-1708234567-3e80a001
      *
      * Used to:
      * - Track payments across systems
@@ -87,6 +105,7 @@ public class Transaction {
      *
      * Unique identifier from InfinitePay for the completed payment
      * Received via webhook when payment succeeds
+     * Unique (uk_transactions_infinite_pay_transaction_nsu)
      */
     @Column(length = 100)
     private String infinitePayTransactionNsu;
@@ -101,4 +120,11 @@ public class Transaction {
      */
     @Column(length = 500)
     private String receiptUrl;
+
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
 }
@@ -3,5 +3,14 @@ package com.cloudwalk.ipsim.model;
 public enum TransactionStatus {
     APPROVED,
     DENIED,
-    PENDING
+    PENDING,
+    // Accepted, checkout link not created yet (see CheckoutOutboxService)
+    PENDING_CREATE;
+
+    /**
+     * @return true if no further status change is expected
+     */
+    public boolean isTerminal() {
+        return this == APPROVED || this == DENIED;
+    }
 }
@@ -0,0 +1,69 @@
+package com.cloudwalk.ipsim.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, monotonic, time-ordered UUID generator (RFC 9562 version 7)
+ *
+ * Layout, from most to least significant bit:
+ * - 48 bits: Unix time in milliseconds
+ * - 4 bits: version (7)
+ * - 12 bits: counter within the millisecond (rand_a used as a counter)
+ * - 2 bits: variant (10)
+ * - 62 bits: random
+ *
+ * New ids are greater than every id generated before them, so inserts
+ * append to the right edge of the primary key B-tree instead of landing on
+ * random pages. Same state handling as {@code SnowflakeOrderNsuGenerator}:
+ * a single AtomicLong (millis << 12 | counter) advanced with a CAS loop,
+ * borrowing the next millisecond after 4096 ids and never going backwards
+ * when the clock does.
+ */
+public final class UuidV7 {
+
+    static final int COUNTER_BITS = 12;
+    static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private static final UuidV7 INSTANCE = new UuidV7(System::currentTimeMillis);
+
+    private final LongSupplier clock;
+    private final AtomicLong state = new AtomicLong();
+
+    UuidV7(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return Next UUIDv7 from the shared generator
+     */
+    public static UUID next() {
+        return INSTANCE.generate();
+    }
+
+    UUID generate() {
+        long id = nextState();
+        long millis = id >>> COUNTER_BITS;
+        long counter = id & COUNTER_MASK;
+
+        long msb = millis << 16 | 0x7000L | counter;
+        long lsb = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Next raw (millis << 12 | counter) value, strictly increasing
+     */
+    private long nextState() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() << COUNTER_BITS;
+            long next = now > current ? now : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+}
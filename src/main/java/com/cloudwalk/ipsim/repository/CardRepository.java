@@ -4,8 +4,20 @@ import com.cloudwalk.ipsim.model.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, UUID> {
+
+    /**
+     * Find the cards of many tokens at once
+     *
+     * Used by the card vault to resolve all the cards of a batch with one query
+     *
+     * @param tokens Keyed hashes of PAN + expiry
+     * @return The cards seen before, in no particular order
+     */
+    List<Card> findByTokenIn(Collection<String> tokens);
 }
@@ -0,0 +1,69 @@
+package com.cloudwalk.ipsim.repository;
+
+import com.cloudwalk.ipsim.model.CheckoutOutboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CheckoutOutboxRepository extends JpaRepository<CheckoutOutboxEntry, UUID> {
+
+    /**
+     * Entries due for relay, oldest first
+     *
+     * Served by the next_attempt_at index. Claimed entries are not due until
+     * their lease runs out.
+     *
+     * @param now Current time
+     * @param limit Max entries to return
+     * @return Transaction ids of the due entries
+     */
+    @Query("""
+            select e.transactionId
+            from CheckoutOutboxEntry e
+            where e.nextAttemptAt <= :now
+            order by e.nextAttemptAt asc
+            """)
+    List<UUID> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Takes the given entries for one relay batch, unless another worker
+     * took them first
+     *
+     * An entry is claimed only if it is still due; its next attempt is
+     * pushed to the end of the lease, so it becomes due again if the worker
+     * dies before finishing it.
+     *
+     * @param ids Entries returned by {@link #findDue}
+     * @param token Identifies the batch
+     * @param now Same time as given to findDue
+     * @param leaseUntil End of the lease
+     * @return Number of entries claimed
+     */
+    @Modifying
+    @Query("""
+            update CheckoutOutboxEntry e
+            set e.claimToken = :token, e.nextAttemptAt = :leaseUntil
+            where e.transactionId in :ids and e.nextAttemptAt <= :now
+            """)
+    int claim(@Param("ids") Collection<UUID> ids,
+              @Param("token") UUID token,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Entries still held by a relay batch
+     *
+     * @param token Token given to {@link #claim}
+     * @return Entries claimed with this token and not reclaimed since
+     */
+    List<CheckoutOutboxEntry> findByClaimToken(UUID token);
+}
@@ -1,15 +1,36 @@
 package com.cloudwalk.ipsim.repository;
 
+import com.cloudwalk.ipsim.dto.CheckoutRequestRef;
+import com.cloudwalk.ipsim.dto.PendingTransactionRef;
+import com.cloudwalk.ipsim.dto.TransactionAggregateRef;
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
 import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
 
+    /**
+     * Rows fetched per JDBC round-trip while streaming an export
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
     /**
      * Find transaction by internal order NSU
      *
@@ -20,4 +41,196 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
      * @return Optional containing transaction if found
      */
     Optional<Transaction> findByOrderNsu(String orderNsu);
+
+    /**
+     * Response snapshot of one order, without loading the entity
+     *
+     * Selects only the columns of the response DTO; used by the read
+     * endpoints, which never modify the transaction.
+     *
+     * @param orderNsu Your internal order identifier
+     * @return Optional containing the snapshot if found
+     */
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.TransactionResponseDTO(
+                t.id, t.amount, t.netAmount, t.status, t.timestamp, t.createdAt, '',
+                t.checkoutUrl, t.orderNsu, t.receiptUrl)
+            from Transaction t
+            where t.orderNsu = :orderNsu
+            """)
+    Optional<TransactionResponseDTO> findSnapshotByOrderNsu(@Param("orderNsu") String orderNsu);
+
+    /**
+     * Find all transactions for a batch of order NSUs in one query
+     *
+     * Used by the webhook consumer to load a whole batch at once
+     *
+     * @param orderNsus Internal order identifiers
+     * @return Transactions found (unknown order NSUs are simply absent)
+     */
+    List<Transaction> findByOrderNsuIn(Collection<String> orderNsus);
+
+    /**
+     * First page of the keyset-paginated listing, newest first
+     *
+     * Selects straight into the response DTO, so neither the Transaction
+     * entities nor their Card are loaded. Rows are ordered by creation
+     * time, which never changes: a transaction changing status while a
+     * client is paging keeps its place. Read in order from the
+     * (created_at desc, id desc) index.
+     *
+     * @param from Optional inclusive lower bound on creation time
+     * @param to Optional exclusive upper bound on creation time
+     * @param limit Max rows to return
+     * @return Matching transactions ordered by createdAt desc, id desc
+     */
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.TransactionResponseDTO(
+                t.id, t.amount, t.netAmount, t.status, t.timestamp, t.createdAt, '',
+                t.checkoutUrl, t.orderNsu, t.receiptUrl)
+            from Transaction t
+            where (:status is null or t.status = :status)
+              and (:type is null or t.type = :type)
+              and (:from is null or t.createdAt >= :from)
+              and (:to is null or t.createdAt < :to)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TransactionResponseDTO> findFirstPage(
+            @Param("status") TransactionStatus status,
+            @Param("type") TransactionType type,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            Limit limit);
+
+    /**
+     * Next page of the keyset-paginated listing, after the last row of the
+     * previous one
+     *
+     * Same order as {@link #findFirstPage}. The cursor is a plain upper
+     * bound on created_at (rows of the same instant with a greater id are
+     * filtered out on the way), so the database seeks into the index
+     * instead of reading it from the top: page N costs the same as page 1.
+     *
+     * @param afterCreatedAt Creation time of the last row already returned
+     * @param afterId Id of the last row already returned
+     * @param limit Max rows to return
+     * @return Matching transactions ordered by createdAt desc, id desc
+     */
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.TransactionResponseDTO(
+                t.id, t.amount, t.netAmount, t.status, t.timestamp, t.createdAt, '',
+                t.checkoutUrl, t.orderNsu, t.receiptUrl)
+            from Transaction t
+            where t.createdAt <= :afterCreatedAt
+              and (t.createdAt < :afterCreatedAt or t.id < :afterId)
+              and (:status is null or t.status = :status)
+              and (:type is null or t.type = :type)
+              and (:from is null or t.createdAt >= :from)
+              and (:to is null or t.createdAt < :to)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TransactionResponseDTO> findPageAfter(
+            @Param("status") TransactionStatus status,
+            @Param("type") TransactionType type,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") UUID afterId,
+            Limit limit);
+
+    /**
+     * Streams every matching transaction for export, newest first
+     *
+     * Same order and filters as the listing ({@link #findFirstPage}).
+     * Must be consumed inside a transaction and closed by the caller.
+     * Rows are pulled from the database {@value #EXPORT_FETCH_SIZE} at a time
+     * and never enter the persistence context.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.TransactionResponseDTO(
+                t.id, t.amount, t.netAmount, t.status, t.timestamp, t.createdAt, '',
+                t.checkoutUrl, t.orderNsu, t.receiptUrl)
+            from Transaction t
+            where (:status is null or t.status = :status)
+              and (:type is null or t.type = :type)
+              and (:from is null or t.createdAt >= :from)
+              and (:to is null or t.createdAt < :to)
+            order by t.createdAt desc, t.id desc
+            """)
+    Stream<TransactionResponseDTO> streamForExport(
+            @Param("status") TransactionStatus status,
+            @Param("type") TransactionType type,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Oldest-first keyset scan of transactions in a given status created
+     * before a cutoff
+     *
+     * Served by the (status, timestamp) index. Used by the reconciler to
+     * find PENDING transactions whose webhook never arrived.
+     *
+     * @param status Status to scan (PENDING)
+     * @param before Only transactions created before this instant
+     * @param afterTimestamp Timestamp of the last row already returned (null for the first page)
+     * @param afterId Id of the last row already returned (null for the first page)
+     * @param limit Max rows to return
+     * @return Matching transactions ordered by timestamp asc, id asc
+     */
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.PendingTransactionRef(
+                t.id, t.orderNsu, t.infinitePaySlug, t.infinitePayTransactionNsu, t.timestamp)
+            from Transaction t
+            where t.status = :status
+              and t.timestamp < :before
+              and (:afterTimestamp is null
+                   or t.timestamp > :afterTimestamp
+                   or (t.timestamp = :afterTimestamp and t.id > :afterId))
+            order by t.timestamp asc, t.id asc
+            """)
+    List<PendingTransactionRef> findStale(
+            @Param("status") TransactionStatus status,
+            @Param("before") LocalDateTime before,
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") UUID afterId,
+            Limit limit);
+
+    /**
+     * Streams the aggregate columns of every transaction changed since a
+     * given time
+     *
+     * Used to rebuild (since = null) or catch up the dashboard aggregates
+     * on startup. Must be consumed inside a transaction and closed by the
+     * caller.
+     *
+     * Relies on every status change setting the timestamp: a change that
+     * does not is never replayed.
+     *
+     * @param since Only transactions whose last change is at or after this time (null for all)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.TransactionAggregateRef(
+                t.id, t.status, t.type, t.installments, t.amount, t.netAmount, t.createdAt, t.timestamp)
+            from Transaction t
+            where (:since is null or t.timestamp >= :since)
+            """)
+    Stream<TransactionAggregateRef> streamForAggregates(@Param("since") LocalDateTime since);
+
+    /**
+     * Checkout details of a batch of transactions, card holder included
+     *
+     * Used by the checkout outbox relay; one query per relay batch.
+     *
+     * @param ids Transaction ids
+     * @return Details of the transactions found
+     */
+    @Query("""
+            select new com.cloudwalk.ipsim.dto.CheckoutRequestRef(
+                t.id, t.orderNsu, t.amount, t.type, t.installments, c.holderName)
+            from Transaction t join t.card c
+            where t.id in :ids
+            """)
+    List<CheckoutRequestRef> findCheckoutRequests(@Param("ids") Collection<UUID> ids);
 }
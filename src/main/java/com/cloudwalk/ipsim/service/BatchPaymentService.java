@@ -0,0 +1,171 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.PaymentRequestDTO;
+import com.cloudwalk.ipsim.model.Transaction;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many payments in one call
+ *
+ * Flow:
+ * 1. Validate each item (bean validation, then card tokenization)
+ * 2. Group the valid ones in chunks of {@code ipsim.batch.persist-chunk-size}
+ * 3. Hand each chunk to the checkout outbox: one database transaction
+ *    looks up the chunk's cards with one query, then inserts the new cards,
+ *    the PENDING_CREATE transactions and their outbox entries, as JDBC
+ *    batches (hibernate.jdbc.batch_size)
+ * 4. Status events are published once the chunk is committed
+ *
+ * No InfinitePay call is made here; the relay workers of
+ * {@link CheckoutOutboxService} create the checkout links afterwards.
+ *
+ * Items fail independently: an invalid item is not recorded and the rest
+ * of the batch goes on. If a chunk cannot be committed (or the outbox is
+ * full), every item of that chunk is reported as failed. Errors returned to
+ * the client never carry database or exception details, those are logged.
+ */
+@Slf4j
+@Service
+public class BatchPaymentService {
+
+    private final PaymentService paymentService;
+    private final CheckoutOutboxService checkoutOutboxService;
+    private final Validator validator;
+    private final Scheduler jpaScheduler;
+
+    private final int persistChunkSize;
+
+    /**
+     * Outcome of one item of a batch
+     *
+     * @param index Position in the submitted list
+     * @param transaction Persisted PENDING_CREATE transaction, null if nothing was recorded
+     * @param error Failure reason, null on success
+     */
+    public record ItemResult(int index, Transaction transaction, String error) {
+
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Validated item waiting to be persisted
+     */
+    private record Accepted(int index, Transaction transaction) {
+    }
+
+    /**
+     * Set in application.properties as:
+     * ipsim.batch.persist-chunk-size=50
+     */
+    public BatchPaymentService(
+            PaymentService paymentService,
+            CheckoutOutboxService checkoutOutboxService,
+            Validator validator,
+            Scheduler jpaScheduler,
+            @Value("${ipsim.batch.persist-chunk-size:50}") int persistChunkSize) {
+        this.paymentService = paymentService;
+        this.checkoutOutboxService = checkoutOutboxService;
+        this.validator = validator;
+        this.jpaScheduler = jpaScheduler;
+        this.persistChunkSize = persistChunkSize;
+    }
+
+    /**
+     * Processes a batch of payments
+     *
+     * @param payments Payment requests, not validated yet
+     * @return Future completing with one result per payment, in the same order
+     */
+    public CompletableFuture<List<ItemResult>> processBatch(List<PaymentRequestDTO> payments) {
+        log.info("Accepting batch of {} payments", payments.size());
+
+        ItemResult[] results = new ItemResult[payments.size()];
+        List<Accepted> accepted = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            String error = validate(payments.get(i));
+            if (error == null) {
+                try {
+                    Transaction transaction = paymentService.newTransaction(payments.get(i));
+                    paymentService.validate(transaction);
+                    accepted.add(new Accepted(i, transaction));
+                } catch (IllegalArgumentException e) {
+                    // Our own messages (card number too short, amount), safe to return
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                log.warn("Batch item {} rejected: {}", i, error);
+                results[i] = new ItemResult(i, null, error);
+            }
+        }
+
+        return Flux.fromIterable(accepted)
+                .buffer(persistChunkSize)
+                .concatMap(chunk -> Mono.fromCallable(() -> persist(chunk)).subscribeOn(jpaScheduler))
+                .flatMapIterable(chunkResults -> chunkResults)
+                .doOnNext(result -> results[result.index()] = result)
+                .then(Mono.fromCallable(() -> List.of(results)))
+                .doOnNext(all -> log.info("Batch done: {}/{} payments accepted",
+                        all.stream().filter(ItemResult::succeeded).count(), all.size()))
+                .toFuture();
+    }
+
+    /**
+     * Bean validation of one item, as @Valid would do for a single payment
+     *
+     * @return Violation messages, null if the item is valid
+     */
+    private String validate(PaymentRequestDTO payment) {
+        if (payment == null) {
+            return "Payment is required";
+        }
+        Set<ConstraintViolation<PaymentRequestDTO>> violations = validator.validate(payment);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Persists one chunk through the outbox and maps it to results
+     */
+    private List<ItemResult> persist(List<Accepted> chunk) {
+        try {
+            checkoutOutboxService.enqueue(chunk.stream().map(Accepted::transaction).toList());
+        } catch (UpstreamUnavailableException e) {
+            log.warn("Rejected {} payments of a batch: {}", chunk.size(), e.getMessage());
+            return failed(chunk, "Checkout backlog is full, retry later");
+        } catch (RuntimeException e) {
+            log.error("Failed to persist {} payments of a batch", chunk.size(), e);
+            return failed(chunk, "Failed to record payment");
+        }
+
+        return chunk.stream()
+                .map(item -> new ItemResult(item.index(), item.transaction(), null))
+                .toList();
+    }
+
+    private static List<ItemResult> failed(List<Accepted> chunk, String error) {
+        return chunk.stream()
+                .map(item -> new ItemResult(item.index(), null, error))
+                .toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudwalk.ipsim.service;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps concurrent calls to a dependency
+ *
+ * Non-blocking: when all slots are taken the caller is rejected instead of
+ * queued, so a slow dependency cannot absorb every request thread or
+ * pending connection.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be at least 1");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * @return true if a slot was taken (must be given back with {@link #release()})
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return Calls currently in flight
+     */
+    public int inFlight() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public int maxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+}
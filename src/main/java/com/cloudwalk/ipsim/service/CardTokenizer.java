@@ -0,0 +1,78 @@
+package com.cloudwalk.ipsim.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Keyed hash of card data
+ *
+ * token = hex(HMAC-SHA256(key, pan + "|" + expiry))
+ *
+ * The same card always maps to the same 64-char token, so it can be used
+ * to find an existing card without storing the PAN. Without the key the
+ * token cannot be brute-forced from the (small) PAN space.
+ *
+ * PAN spaces and dashes are ignored, so "4000 1234 5678 9010" and
+ * "4000123456789010" are the same card.
+ */
+public class CardTokenizer {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    // Mac instances are not thread-safe
+    private final ThreadLocal<Mac> mac;
+
+    public CardTokenizer(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("Card vault key must not be empty");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * @param pan Card number, may contain spaces or dashes
+     * @param expiryDate Expiry date (MM/YY)
+     * @return Token identifying this card
+     */
+    public String tokenize(String pan, String expiryDate) {
+        String input = normalize(pan) + "|" + expiryDate.trim();
+        return HexFormat.of().formatHex(mac.get().doFinal(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return Last 4 digits of the PAN, safe to store and display
+     */
+    public static String last4(String pan) {
+        String digits = normalize(pan);
+        if (digits.length() < 4) {
+            throw new IllegalArgumentException("Card number is too short");
+        }
+        return digits.substring(digits.length() - 4);
+    }
+
+    static String normalize(String pan) {
+        StringBuilder digits = new StringBuilder(pan.length());
+        for (int i = 0; i < pan.length(); i++) {
+            char c = pan.charAt(i);
+            if (c != ' ' && c != '-') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
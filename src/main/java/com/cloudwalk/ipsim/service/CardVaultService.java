@@ -0,0 +1,167 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.Card;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.repository.CardRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Card vault: one Card row per distinct card, the PAN is never stored
+ *
+ * Cards are identified by a keyed token of PAN + expiry (see
+ * {@link CardTokenizer}); only the token and the last 4 digits are kept.
+ *
+ * Resolution happens in two steps, so the request thread never waits on
+ * the database:
+ * 1. {@link #cardFor}: tokenize on the request thread; a card seen before is
+ *    taken from the in-memory token cache, otherwise an unsaved Card
+ *    carries the details
+ * 2. {@link #resolveAll}: inside the transaction that stores the payments,
+ *    the remaining tokens are looked up with one query and the new cards
+ *    inserted with one batch. Nothing is stored if the payments are not.
+ *
+ * The cache is only filled once that transaction has committed
+ * ({@link #remember}), so it never holds a card that was rolled back.
+ *
+ * The holder name is the one of the first payment made with the card.
+ *
+ * Hit, miss and eviction counts are published as cache.* metrics with
+ * tag cache=cards.token.
+ *
+ * The HMAC key has no default outside the dev and emulator profiles:
+ * startup fails when it is missing, or when the prod profile runs with
+ * the development key, rather than tokenizing PANs with a public key.
+ */
+@Slf4j
+@Service
+public class CardVaultService {
+
+    static final String CACHE_NAME = "cards.token";
+    static final String DEV_KEY = "ipsim-dev-card-vault-key";
+
+    private final CardRepository cardRepository;
+    private final CardTokenizer tokenizer;
+    private final Cache<String, Card> cache;
+
+    /**
+     * Set in application.properties as:
+     * ipsim.card-vault.key=${IPSIM_CARD_VAULT_KEY:}
+     * ipsim.card-vault.cache-max-size=100000
+     *
+     * application-dev.properties and application-emulator.properties
+     * fall back to the development key.
+     */
+    public CardVaultService(
+            CardRepository cardRepository,
+            @Value("${ipsim.card-vault.key:}") String key,
+            @Value("${ipsim.card-vault.cache-max-size:100000}") long cacheMaxSize,
+            MeterRegistry meterRegistry,
+            Environment environment) {
+        if (key.isBlank()) {
+            throw new IllegalStateException("ipsim.card-vault.key is not set: define IPSIM_CARD_VAULT_KEY");
+        }
+        if (DEV_KEY.equals(key) && environment.acceptsProfiles(Profiles.of("prod"))) {
+            throw new IllegalStateException("ipsim.card-vault.key is the development key under the prod profile: "
+                    + "define IPSIM_CARD_VAULT_KEY");
+        }
+        this.cardRepository = cardRepository;
+        this.tokenizer = new CardTokenizer(key);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Card for these details, without touching the database
+     *
+     * Returns the stored card when it is cached, otherwise a new unsaved
+     * Card; either way {@link #resolveAll} swaps it for the stored row.
+     * The returned Card is shared: reference it from a Transaction, do not
+     * modify it.
+     *
+     * @param pan Card number (PAN)
+     * @param holderName Card holder name
+     * @param expiryDate Expiry date (MM/YY)
+     * @return Card to set on a new transaction
+     */
+    public Card cardFor(String pan, String holderName, String expiryDate) {
+        String token = tokenizer.tokenize(pan, expiryDate);
+        Card cached = cache.getIfPresent(token);
+        return cached != null ? cached : new Card(token, CardTokenizer.last4(pan), holderName, expiryDate);
+    }
+
+    /**
+     * Points each transaction at the stored row of its card, inserting the
+     * cards never seen before
+     *
+     * Must run inside the transaction that stores the payments. Cards are
+     * matched by token only: a Card left over from a rolled-back attempt is
+     * looked up (or inserted) again. The inserts are flushed right away, so
+     * a card stored concurrently by another request fails here, before
+     * anything else is written.
+     *
+     * @param transactions New transactions, each with a card from {@link #cardFor}
+     * @return The stored cards, to {@link #remember} once committed
+     */
+    public Collection<Card> resolveAll(List<Transaction> transactions) {
+        Map<String, Card> stored = new HashMap<>();
+        Map<String, Card> requested = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            Card card = transaction.getCard();
+            Card cached = cache.getIfPresent(card.getToken());
+            if (cached != null) {
+                stored.put(cached.getToken(), cached);
+            } else {
+                requested.putIfAbsent(card.getToken(), card);
+            }
+        }
+
+        if (!requested.isEmpty()) {
+            for (Card card : cardRepository.findByTokenIn(requested.keySet())) {
+                stored.put(card.getToken(), card);
+            }
+            List<Card> created = new ArrayList<>();
+            for (Card card : requested.values()) {
+                if (!stored.containsKey(card.getToken())) {
+                    created.add(new Card(card.getToken(), card.getLast4(), card.getHolderName(), card.getExpiryDate()));
+                }
+            }
+            for (Card card : cardRepository.saveAllAndFlush(created)) {
+                stored.put(card.getToken(), card);
+                log.info("Stored new card ending in {}", card.getLast4());
+            }
+        }
+
+        for (Transaction transaction : transactions) {
+            transaction.setCard(stored.get(transaction.getCard().getToken()));
+        }
+        return stored.values();
+    }
+
+    /**
+     * Caches cards whose storing transaction has committed
+     */
+    public void remember(Collection<Card> cards) {
+        for (Card card : cards) {
+            cache.put(card.getToken(), card);
+        }
+    }
+}
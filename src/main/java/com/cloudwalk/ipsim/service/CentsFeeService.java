@@ -0,0 +1,131 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.TransactionType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Allocation-free fee engine working in cents and basis points
+ *
+ * Same rates and rounding as {@link FeeService}, for hot paths such as fee
+ * previews and batch settlement where creating several BigDecimals per
+ * call adds up. Amounts are long cents (R$ 10.00 = 1000), rates are basis
+ * points (1.5% = 150) looked up from a table precomputed per
+ * TransactionType and installment count.
+ *
+ * Rounding: amount * bps is exact, the division by 10,000 rounds half away
+ * from zero, which is exactly BigDecimal's HALF_UP at scale 2.
+ */
+@Service
+public class CentsFeeService {
+
+    public static final int MIN_INSTALLMENTS = 1;
+    public static final int MAX_INSTALLMENTS = 12;
+
+    private static final long BPS_DENOMINATOR = 10_000L;
+    private static final long HALF = BPS_DENOMINATOR / 2;
+
+    // Hypothetical InfinitePay rates (Simulated), same as FeeService
+    private static final int BPS_DEBIT = 150; // 1.5%
+    private static final int BPS_CREDIT_SPOT = 300; // 3.0%
+    private static final int BPS_CREDIT_INSTALLMENT_BASE = 400; // 4.0% base
+    private static final int BPS_PER_INSTALLMENT = 100; // +1% per installment
+
+    /**
+     * Rate in basis points, indexed by [type.ordinal()][installments]
+     */
+    private static final int[][] RATE_BPS = buildRateTable();
+
+    /**
+     * Fee for one amount
+     *
+     * @param amountCents Amount in cents (negative for refunds)
+     * @param type Transaction type
+     * @param installments 1 to {@value #MAX_INSTALLMENTS} (ignored by the rate for DEBIT and CREDIT_SPOT)
+     * @return Fee in cents, rounded HALF_UP
+     * @throws IllegalArgumentException if installments is out of range
+     * @throws ArithmeticException if the amount is too large to multiply by the rate
+     */
+    public long calculateFee(long amountCents, TransactionType type, int installments) {
+        return applyRate(amountCents, rateBps(type, installments));
+    }
+
+    /**
+     * Net amount the merchant receives
+     *
+     * @return amountCents minus the fee, in cents
+     */
+    public long calculateNetAmount(long amountCents, TransactionType type, int installments) {
+        return amountCents - calculateFee(amountCents, type, installments);
+    }
+
+    /**
+     * Fees for many amounts sharing the same type and installments
+     *
+     * @param amountsCents Amounts in cents
+     * @param type Transaction type
+     * @param installments 1 to {@value #MAX_INSTALLMENTS}
+     * @param feesCents Output, at least as long as amountsCents
+     */
+    public void calculateFees(long[] amountsCents, TransactionType type, int installments, long[] feesCents) {
+        requireCapacity(amountsCents.length, feesCents.length);
+        int bps = rateBps(type, installments);
+        for (int i = 0; i < amountsCents.length; i++) {
+            feesCents[i] = applyRate(amountsCents[i], bps);
+        }
+    }
+
+    /**
+     * Fees for a batch of mixed transactions, element i of every array
+     * describing transaction i
+     *
+     * @param amountsCents Amounts in cents
+     * @param types Transaction types
+     * @param installments Installment counts
+     * @param feesCents Output, at least as long as amountsCents
+     */
+    public void calculateFees(long[] amountsCents, TransactionType[] types, int[] installments, long[] feesCents) {
+        if (types.length != amountsCents.length || installments.length != amountsCents.length) {
+            throw new IllegalArgumentException("amounts, types and installments must have the same length");
+        }
+        requireCapacity(amountsCents.length, feesCents.length);
+        for (int i = 0; i < amountsCents.length; i++) {
+            feesCents[i] = applyRate(amountsCents[i], rateBps(types[i], installments[i]));
+        }
+    }
+
+    /**
+     * Rate for a type and installment count, in basis points
+     */
+    public int rateBps(TransactionType type, int installments) {
+        if (installments < MIN_INSTALLMENTS || installments > MAX_INSTALLMENTS) {
+            throw new IllegalArgumentException(
+                    "installments must be between " + MIN_INSTALLMENTS + " and " + MAX_INSTALLMENTS);
+        }
+        return RATE_BPS[type.ordinal()][installments];
+    }
+
+    private static long applyRate(long amountCents, int bps) {
+        long scaled = Math.multiplyExact(amountCents, (long) bps);
+        // HALF_UP rounds ties away from zero, so round the magnitude
+        return scaled >= 0
+                ? (scaled + HALF) / BPS_DENOMINATOR
+                : -((-scaled + HALF) / BPS_DENOMINATOR);
+    }
+
+    private static void requireCapacity(int amounts, int fees) {
+        if (fees < amounts) {
+            throw new IllegalArgumentException("fees array is shorter than amounts array");
+        }
+    }
+
+    private static int[][] buildRateTable() {
+        int[][] table = new int[TransactionType.values().length][MAX_INSTALLMENTS + 1];
+        for (int n = MIN_INSTALLMENTS; n <= MAX_INSTALLMENTS; n++) {
+            table[TransactionType.DEBIT.ordinal()][n] = BPS_DEBIT;
+            table[TransactionType.CREDIT_SPOT.ordinal()][n] = BPS_CREDIT_SPOT;
+            // Base + (Installments * PerInstallment), e.g. 12x = 4% + 12% = 16%
+            table[TransactionType.CREDIT_INSTALLMENT.ordinal()][n] = BPS_CREDIT_INSTALLMENT_BASE + n * BPS_PER_INSTALLMENT;
+        }
+        return table;
+    }
+}
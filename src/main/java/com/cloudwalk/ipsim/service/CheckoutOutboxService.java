@@ -0,0 +1,598 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.CheckoutRequestRef;
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutResponse;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.Card;
+import com.cloudwalk.ipsim.model.CheckoutOutboxEntry;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.CheckoutOutboxRepository;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for checkout link creation
+ *
+ * The HTTP path never calls InfinitePay. {@link #enqueue} stores each new
+ * transaction as PENDING_CREATE together with a {@link CheckoutOutboxEntry},
+ * in one database transaction, and returns. A pool of relay workers drains
+ * the outbox:
+ * 1. Claim up to {@code batch-size} due entries (lease, so workers and
+ *    instances never relay the same entry at the same time)
+ * 2. Load their checkout details with one query
+ * 3. Create the checkout links, at most {@code concurrency} in flight
+ * 4. In one transaction: move created ones to PENDING with their checkout
+ *    URL and delete their entries; schedule failed ones for a retry with
+ *    exponential back-off, or mark them DENIED after {@code max-attempts}
+ *    (or on a 4xx answer)
+ * 5. Publish status events once committed
+ *
+ * A crash can no longer leave a checkout link without a local row: the row
+ * exists before InfinitePay is called. Delivery is at least once: if the
+ * process dies after InfinitePay answered but before step 4 commits, the
+ * link is created again for the same order_nsu once the lease runs out.
+ *
+ * Instances sharing the database share the outbox: the {@code max-backlog}
+ * check and the backlog gauge count the table itself (see {@link #backlog}).
+ *
+ * Calls rejected by the circuit breaker or bulkhead are not counted as
+ * attempts: the entries are released until the rejection's retry-after
+ * (at least the initial back-off), and the workers stop claiming until
+ * then instead of re-claiming the backlog only to have it rejected again.
+ *
+ * Metrics:
+ * - ipsim.outbox.backlog: transactions waiting for a checkout link, across
+ *   all instances
+ * - ipsim.outbox.relayed: entries finished, tagged outcome=created|denied
+ * - ipsim.outbox.retries: failed attempts scheduled for a retry
+ * - ipsim.outbox.relay.batch: time to relay one claimed batch
+ * - ipsim.outbox.lag: payment accepted -> checkout link stored
+ */
+@Slf4j
+@Service
+public class CheckoutOutboxService implements SmartLifecycle {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final CheckoutOutboxRepository outboxRepository;
+    private final CardVaultService cardVaultService;
+    private final InfinitePayService infinitePayService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean relayEnabled;
+    private final int workerCount;
+    private final int batchSize;
+    private final int concurrency;
+    private final long maxBacklog;
+    private final long backlogRefreshNanos;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final long pollIntervalNanos;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    /**
+     * Accepted transactions whose PENDING_CREATE event is not published yet;
+     * the relay leaves them alone so listeners never see PENDING first
+     */
+    private final Set<UUID> unpublished = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Outbox size: recounted from the shared table every
+     * {@code backlog-refresh}, adjusted locally in between
+     */
+    private final AtomicLong backlog = new AtomicLong();
+    private final ReentrantLock backlogRefresh = new ReentrantLock();
+    private volatile long backlogCountedAt;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final Counter created;
+    private final Counter denied;
+    private final Counter retries;
+    private final Timer batchTimer;
+    private final Timer lag;
+
+    private volatile boolean running;
+    private volatile Thread[] workers = new Thread[0];
+    // System.nanoTime() before which no worker claims (InfinitePay rejecting calls)
+    private volatile long pausedUntilNanos = System.nanoTime();
+
+    /**
+     * Outcome of one checkout call
+     */
+    private record Attempt(CheckoutRequestRef request, InfinitePayCheckoutResponse checkout, Throwable error) {
+    }
+
+    /**
+     * Set in application.properties as:
+     * ipsim.outbox.relay.enabled=true
+     * ipsim.outbox.relay.workers=4
+     * ipsim.outbox.relay.batch-size=50
+     * ipsim.outbox.relay.concurrency=8
+     * ipsim.outbox.relay.lease=30s
+     * ipsim.outbox.relay.poll-interval=500ms
+     * ipsim.outbox.relay.max-attempts=8
+     * ipsim.outbox.relay.backoff.initial=1s
+     * ipsim.outbox.relay.backoff.max=1m
+     * ipsim.outbox.max-backlog=100000
+     * ipsim.outbox.backlog-refresh=1s
+     */
+    public CheckoutOutboxService(
+            TransactionRepository transactionRepository,
+            CheckoutOutboxRepository outboxRepository,
+            CardVaultService cardVaultService,
+            InfinitePayService infinitePayService,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${ipsim.outbox.relay.enabled:true}") boolean relayEnabled,
+            @Value("${ipsim.outbox.relay.workers:4}") int workerCount,
+            @Value("${ipsim.outbox.relay.batch-size:50}") int batchSize,
+            @Value("${ipsim.outbox.relay.concurrency:8}") int concurrency,
+            @Value("${ipsim.outbox.relay.lease:30s}") Duration lease,
+            @Value("${ipsim.outbox.relay.poll-interval:500ms}") Duration pollInterval,
+            @Value("${ipsim.outbox.relay.max-attempts:8}") int maxAttempts,
+            @Value("${ipsim.outbox.relay.backoff.initial:1s}") Duration initialBackoff,
+            @Value("${ipsim.outbox.relay.backoff.max:1m}") Duration maxBackoff,
+            @Value("${ipsim.outbox.max-backlog:100000}") long maxBacklog,
+            @Value("${ipsim.outbox.backlog-refresh:1s}") Duration backlogRefresh,
+            MeterRegistry meterRegistry) {
+
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("ipsim.outbox.relay.workers must be at least 1");
+        }
+        this.transactionRepository = transactionRepository;
+        this.outboxRepository = outboxRepository;
+        this.cardVaultService = cardVaultService;
+        this.infinitePayService = infinitePayService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.relayEnabled = relayEnabled;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.lease = lease;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.maxBacklog = maxBacklog;
+        this.backlogRefreshNanos = backlogRefresh.toNanos();
+        this.backlogCountedAt = System.nanoTime() - backlogRefreshNanos;
+
+        this.created = Counter.builder("ipsim.outbox.relayed")
+                .description("Outbox entries finished")
+                .tag("outcome", "created")
+                .register(meterRegistry);
+        this.denied = Counter.builder("ipsim.outbox.relayed")
+                .description("Outbox entries finished")
+                .tag("outcome", "denied")
+                .register(meterRegistry);
+        this.retries = Counter.builder("ipsim.outbox.retries")
+                .description("Failed checkout creations scheduled for a retry")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("ipsim.outbox.relay.batch")
+                .description("Time to relay one claimed batch of the checkout outbox")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lag = Timer.builder("ipsim.outbox.lag")
+                .description("Time from payment accepted to checkout link stored")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("ipsim.outbox.backlog", this, CheckoutOutboxService::backlog)
+                .description("Transactions waiting for a checkout link")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores new transactions as PENDING_CREATE, with their outbox entries
+     * and any card never seen before, in one database transaction
+     *
+     * Order NSUs are assigned and cards resolved here (see
+     * {@link CardVaultService#resolveAll}). If another request stores one of
+     * the same new cards first, the whole transaction is retried once and
+     * finds it. Status events are published, the card cache filled and a
+     * relay worker woken once committed.
+     *
+     * @param transactions Validated transactions, not yet persisted, each
+     *        with a card from {@link CardVaultService#cardFor}
+     * @return The persisted transactions, in the same order
+     * @throws UpstreamUnavailableException when the outbox already holds
+     *         {@code max-backlog} entries (InfinitePay down for a while)
+     */
+    public List<Transaction> enqueue(List<Transaction> transactions) {
+        if (backlog() >= maxBacklog) {
+            throw new UpstreamUnavailableException("Checkout backlog is full", Duration.ofNanos(initialBackoffNanos));
+        }
+
+        List<UUID> ids = new ArrayList<>(transactions.size());
+        List<Card> cards = new ArrayList<>();
+        try {
+            List<Transaction> saved;
+            try {
+                saved = store(transactions, ids, cards);
+            } catch (DataIntegrityViolationException e) {
+                if (!cards.isEmpty()) {
+                    // Failed after the cards were resolved: not a concurrent card insert
+                    throw e;
+                }
+                saved = store(transactions, ids, cards);
+            }
+
+            cardVaultService.remember(cards);
+            backlog.addAndGet(saved.size());
+            for (Transaction transaction : saved) {
+                eventPublisher.publishEvent(TransactionStatusChangedEvent.of(transaction, null));
+            }
+            return saved;
+        } finally {
+            unpublished.removeAll(ids);
+            wakeWorker();
+        }
+    }
+
+    /**
+     * One attempt of {@link #enqueue}'s database transaction
+     *
+     * @param ids Filled with the new transaction ids
+     * @param cards Filled with the resolved cards, once they are
+     */
+    private List<Transaction> store(List<Transaction> transactions, List<UUID> ids, List<Card> cards) {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> {
+            cards.addAll(cardVaultService.resolveAll(transactions));
+            for (Transaction transaction : transactions) {
+                transaction.setOrderNsu(infinitePayService.generateOrderNsu());
+                transaction.setStatus(TransactionStatus.PENDING_CREATE);
+                transaction.setTimestamp(now);
+            }
+            List<Transaction> result = transactionRepository.saveAll(transactions);
+            for (Transaction transaction : result) {
+                ids.add(transaction.getId());
+            }
+            // Before commit: no relay worker can see the entries yet
+            unpublished.addAll(ids);
+            outboxRepository.saveAll(ids.stream()
+                    .map(id -> new CheckoutOutboxEntry(id, now))
+                    .toList());
+            return result;
+        });
+    }
+
+    /**
+     * Transactions waiting for a checkout link, across all instances
+     * sharing the database
+     *
+     * Every instance enqueues and relays, so no local counter can tell.
+     * The outbox table is counted at most once per {@code backlog-refresh};
+     * this instance's own enqueues and completions are added in between.
+     *
+     * @return Outbox size, at most {@code backlog-refresh} old
+     */
+    public long backlog() {
+        if (System.nanoTime() - backlogCountedAt >= backlogRefreshNanos && backlogRefresh.tryLock()) {
+            // One caller recounts, the others use the current value
+            try {
+                if (System.nanoTime() - backlogCountedAt >= backlogRefreshNanos) {
+                    backlog.set(outboxRepository.count());
+                    backlogCountedAt = System.nanoTime();
+                }
+            } finally {
+                backlogRefresh.unlock();
+            }
+        }
+        return backlog.get();
+    }
+
+    /**
+     * Builds a human-readable payment description
+     *
+     * @return Description string for checkout
+     */
+    static String buildPaymentDescription(TransactionType type, int installments, BigDecimal amount) {
+        String typeDesc = switch (type) {
+            case DEBIT -> "Pagamento com Débito";
+            case CREDIT_SPOT -> "Pagamento com Crédito à vista";
+            case CREDIT_INSTALLMENT -> "Pagamento com Crédito (" + installments + "x)";
+        };
+
+        return typeDesc + " - R$ " + amount;
+    }
+
+    // =====================================================
+    // Relay
+    // =====================================================
+
+    private void relayLoop() {
+        while (running) {
+            long paused = pausedUntilNanos - System.nanoTime();
+            if (paused > 0) {
+                // Woken early by an enqueue: go back to sleep
+                LockSupport.parkNanos(paused);
+                continue;
+            }
+            try {
+                if (relayOnce() < batchSize) {
+                    LockSupport.parkNanos(pollIntervalNanos);
+                }
+            } catch (Exception e) {
+                log.error("Checkout outbox relay failed, retrying", e);
+                LockSupport.parkNanos(initialBackoffNanos);
+            }
+        }
+    }
+
+    /**
+     * Claims and relays one batch
+     *
+     * @return Number of entries claimed
+     */
+    int relayOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        UUID token = UUID.randomUUID();
+
+        List<UUID> claimed = transactionTemplate.execute(status -> {
+            List<UUID> due = outboxRepository.findDue(now, Limit.of(batchSize));
+            if (due.isEmpty() || outboxRepository.claim(due, token, now, now.plus(lease)) == 0) {
+                return List.<UUID>of();
+            }
+            return outboxRepository.findByClaimToken(token).stream()
+                    .map(CheckoutOutboxEntry::getTransactionId)
+                    .toList();
+        });
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        List<UUID> ready = claimed.stream().filter(id -> !unpublished.contains(id)).toList();
+        List<CheckoutRequestRef> requests = ready.isEmpty()
+                ? List.of()
+                : transactionRepository.findCheckoutRequests(ready);
+
+        List<Attempt> attempts = Flux.fromIterable(requests)
+                .flatMap(request -> infinitePayService.createCheckoutLinkAsync(
+                                request.amount(),
+                                buildPaymentDescription(request.type(), request.installments(), request.amount()),
+                                request.orderNsu(),
+                                request.holderName(),
+                                null)
+                        .map(checkout -> new Attempt(request, checkout, null))
+                        .onErrorResume(e -> Mono.just(new Attempt(request, null, e))), concurrency)
+                .collectList()
+                .block();
+
+        complete(token, attempts);
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claimed.size();
+    }
+
+    /**
+     * Applies the outcome of a batch to the entries this batch still holds
+     *
+     * An entry reclaimed by another worker (lease ran out) is left to it;
+     * an entry that was not attempted (its PENDING_CREATE event not
+     * published yet) is released until the next poll, so it is not claimed
+     * and released again in a tight loop.
+     */
+    private void complete(UUID token, List<Attempt> attempts) {
+        Map<UUID, Attempt> byId = attempts.stream()
+                .collect(Collectors.toMap(attempt -> attempt.request().id(), Function.identity()));
+
+        List<TransactionStatusChangedEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<CheckoutOutboxEntry> held = outboxRepository.findByClaimToken(token);
+            Map<UUID, Transaction> transactions = transactionRepository
+                    .findAllById(held.stream().map(CheckoutOutboxEntry::getTransactionId).toList()).stream()
+                    .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+
+            List<CheckoutOutboxEntry> done = new ArrayList<>();
+            List<TransactionStatusChangedEvent> result = new ArrayList<>();
+            for (CheckoutOutboxEntry entry : held) {
+                Attempt attempt = byId.get(entry.getTransactionId());
+                Transaction transaction = transactions.get(entry.getTransactionId());
+                if (attempt == null || transaction == null) {
+                    entry.setClaimToken(null);
+                    entry.setNextAttemptAt(now.plusNanos(pollIntervalNanos));
+                } else if (attempt.checkout() != null) {
+                    storeCheckout(transaction, attempt.checkout(), now, result);
+                    lag.record(Duration.between(entry.getCreatedAt(), now));
+                    created.increment();
+                    done.add(entry);
+                } else if (attempt.error() instanceof UpstreamUnavailableException rejected) {
+                    // Not attempted: try again once InfinitePay accepts calls, without using up an attempt
+                    long delay = retryAfterNanos(rejected);
+                    entry.setClaimToken(null);
+                    entry.setNextAttemptAt(now.plusNanos(delay));
+                    pauseRelay(delay);
+                } else if (entry.getAttempts() + 1 >= maxAttempts || isPermanent(attempt.error())) {
+                    log.error("Giving up checkout creation for order {} after {} attempt(s)",
+                            attempt.request().orderNsu(), entry.getAttempts() + 1, attempt.error());
+                    deny(transaction, now, result);
+                    denied.increment();
+                    done.add(entry);
+                } else {
+                    entry.setAttempts(entry.getAttempts() + 1);
+                    entry.setLastError(truncate(attempt.error().getMessage()));
+                    entry.setClaimToken(null);
+                    entry.setNextAttemptAt(now.plusNanos(backoffNanos(entry.getAttempts())));
+                    retries.increment();
+                }
+            }
+
+            outboxRepository.deleteAllInBatch(done);
+            backlog.addAndGet(-done.size());
+            return result;
+        });
+
+        // Published after commit: SSE subscribers and the hot cache only see persisted state
+        for (TransactionStatusChangedEvent event : events) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    /**
+     * Stores the checkout link and moves the transaction to PENDING
+     *
+     * A webhook may have approved the payment already (the link was handed
+     * to the payer before this commit): the link is kept, the status is not
+     * touched.
+     */
+    private void storeCheckout(Transaction transaction, InfinitePayCheckoutResponse checkout, LocalDateTime now,
+                               List<TransactionStatusChangedEvent> events) {
+        if (transaction.getCheckoutUrl() == null) {
+            transaction.setCheckoutUrl(checkout.getCheckoutUrl());
+        }
+        if (transaction.getInfinitePaySlug() == null) {
+            transaction.setInfinitePaySlug(checkout.getSlug());
+        }
+        if (transaction.getStatus() == TransactionStatus.PENDING_CREATE) {
+            transaction.setStatus(TransactionStatus.PENDING);
+            transaction.setTimestamp(now);
+            events.add(TransactionStatusChangedEvent.of(transaction, TransactionStatus.PENDING_CREATE));
+            log.info("Payment initiated. Order NSU: {}, Checkout URL: {}",
+                    transaction.getOrderNsu(), checkout.getCheckoutUrl());
+        }
+    }
+
+    private void deny(Transaction transaction, LocalDateTime now, List<TransactionStatusChangedEvent> events) {
+        if (transaction.getStatus() == TransactionStatus.PENDING_CREATE) {
+            transaction.setStatus(TransactionStatus.DENIED);
+            transaction.setTimestamp(now);
+            events.add(TransactionStatusChangedEvent.of(transaction, TransactionStatus.PENDING_CREATE));
+        }
+    }
+
+    /**
+     * The rejection's retry-after (time left OPEN, bulkhead back-off), at
+     * least the initial back-off
+     */
+    private long retryAfterNanos(UpstreamUnavailableException rejected) {
+        Duration retryAfter = rejected.getRetryAfter();
+        return retryAfter == null ? initialBackoffNanos : Math.max(retryAfter.toNanos(), initialBackoffNanos);
+    }
+
+    /**
+     * Stops every worker from claiming for {@code delayNanos}
+     */
+    private void pauseRelay(long delayNanos) {
+        long until = System.nanoTime() + delayNanos;
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+    }
+
+    /**
+     * A 4xx answer (other than timeout / rate limit) will not change on retry
+     */
+    private static boolean isPermanent(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof WebClientResponseException wcre) {
+            int status = wcre.getStatusCode().value();
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+        return false;
+    }
+
+    /**
+     * initial * 2^(attempts - 1), capped at max, without overflowing the shift
+     */
+    private long backoffNanos(int attempts) {
+        return attempts - 1 < Long.numberOfLeadingZeros(initialBackoffNanos) - 1
+                ? Math.min(maxBackoffNanos, initialBackoffNanos << (attempts - 1))
+                : maxBackoffNanos;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Wakes one relay worker, round-robin; a busy worker picks the signal up
+     * on its next park
+     */
+    private void wakeWorker() {
+        Thread[] current = workers;
+        if (current.length > 0) {
+            LockSupport.unpark(current[Math.floorMod(nextWorker.getAndIncrement(), current.length)]);
+        }
+    }
+
+    // =====================================================
+    // Lifecycle
+    // =====================================================
+
+    @Override
+    public void start() {
+        long waiting = backlog();
+        running = true;
+        if (!relayEnabled) {
+            log.warn("Checkout outbox relay disabled: payments stay PENDING_CREATE");
+            return;
+        }
+        Thread[] started = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            started[i] = Thread.ofPlatform().name("checkout-relay-" + i).daemon().start(this::relayLoop);
+        }
+        workers = started;
+        if (waiting > 0) {
+            log.info("Checkout outbox holds {} entries from a previous run", waiting);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
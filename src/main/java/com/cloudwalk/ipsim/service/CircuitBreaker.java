@@ -0,0 +1,210 @@
+package com.cloudwalk.ipsim.service;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal count-based circuit breaker
+ *
+ * States:
+ * - CLOSED: calls go through; outcomes of the last {@code windowSize} calls
+ *   are recorded. Once at least {@code minimumCalls} were recorded and the
+ *   failure rate reaches the threshold, the breaker opens.
+ * - OPEN: calls are rejected immediately until {@code openDuration} elapsed.
+ * - HALF_OPEN: up to {@code halfOpenCalls} trial calls are let through. If
+ *   they all succeed the breaker closes, any failure opens it again.
+ *
+ * Every caller that obtained a permission must report exactly one of
+ * {@link #onSuccess}, {@link #onFailure} or {@link #releasePermission},
+ * passing the permission back. A permission belongs to the state it was
+ * granted in (each transition starts a new generation): outcomes of calls
+ * started before a transition are ignored, so a late success of a call
+ * made while CLOSED cannot count as a HALF_OPEN trial call, and a late
+ * failure cannot reopen the breaker.
+ *
+ * All methods are synchronized; they only touch a few fields, so the lock
+ * is held for nanoseconds.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Returned by {@link #tryAcquirePermission()} when the call must not proceed
+     */
+    public static final long NO_PERMISSION = -1;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThresholdPercent;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final BiConsumer<State, State> onTransition;
+
+    // Ring buffer of the last outcomes (true = failure), CLOSED state only
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    // Incremented on every transition
+    private long generation;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    /**
+     * @param windowSize Number of most recent calls considered
+     * @param minimumCalls Calls needed in the window before the breaker may open
+     * @param failureRateThresholdPercent Failure rate (0-100) that opens the breaker
+     * @param openDurationNanos Time spent OPEN before trial calls are allowed
+     * @param halfOpenCalls Trial calls needed to close again
+     * @param nanoClock Time source (System::nanoTime)
+     * @param onTransition Called (under the lock) on every state change
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThresholdPercent,
+                          long openDurationNanos, int halfOpenCalls,
+                          LongSupplier nanoClock, BiConsumer<State, State> onTransition) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+        }
+        if (failureRateThresholdPercent < 1 || failureRateThresholdPercent > 100) {
+            throw new IllegalArgumentException("failureRateThresholdPercent must be between 1 and 100");
+        }
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("halfOpenCalls must be at least 1");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThresholdPercent = failureRateThresholdPercent;
+        this.openDurationNanos = openDurationNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.onTransition = onTransition;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * @return Permission to report the outcome with, or
+     *         {@link #NO_PERMISSION} if the call must not proceed
+     */
+    public synchronized long tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return generation;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                    return NO_PERMISSION;
+                }
+                transitionTo(State.HALF_OPEN);
+                // fall through: this caller is the first trial call
+            case HALF_OPEN:
+                if (halfOpenPermitted >= halfOpenCalls) {
+                    return NO_PERMISSION;
+                }
+                halfOpenPermitted++;
+                return generation;
+            default:
+                throw new IllegalStateException("Unknown state " + state);
+        }
+    }
+
+    public synchronized void onSuccess(long permission) {
+        if (permission != generation) {
+            // Late result of a call started before the last transition
+            return;
+        }
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                if (++halfOpenSucceeded >= halfOpenCalls) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case OPEN -> {
+                // No permission is granted while OPEN
+            }
+        }
+    }
+
+    public synchronized void onFailure(long permission) {
+        if (permission != generation) {
+            // Late result of a call started before the last transition
+            return;
+        }
+        switch (state) {
+            case CLOSED -> record(true);
+            case HALF_OPEN -> transitionTo(State.OPEN);
+            case OPEN -> {
+                // No permission is granted while OPEN
+            }
+        }
+    }
+
+    /**
+     * Gives back a permission whose call never ran or whose outcome says
+     * nothing about upstream health (e.g. cancelled)
+     */
+    public synchronized void releasePermission(long permission) {
+        if (permission == generation && state == State.HALF_OPEN && halfOpenPermitted > halfOpenSucceeded) {
+            halfOpenPermitted--;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return Time until trial calls are allowed, zero unless OPEN
+     */
+    public synchronized long remainingOpenNanos() {
+        return state == State.OPEN
+                ? Math.max(0, openDurationNanos - (nanoClock.getAsLong() - openedAt))
+                : 0;
+    }
+
+    /**
+     * Records an outcome while CLOSED and opens the breaker if the window
+     * is full enough and the failure rate reached the threshold
+     */
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+
+        if (recorded >= minimumCalls && failures * 100 >= failureRateThresholdPercent * recorded) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        generation++;
+        switch (target) {
+            case OPEN -> openedAt = nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenPermitted = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                next = 0;
+                recorded = 0;
+                failures = 0;
+            }
+        }
+        onTransition.accept(previous, target);
+    }
+}
@@ -0,0 +1,263 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.DashboardAggregateDTO;
+import com.cloudwalk.ipsim.dto.DashboardBucketDTO;
+import com.cloudwalk.ipsim.dto.DashboardSummaryDTO;
+import com.cloudwalk.ipsim.dto.TransactionAggregateRef;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Server-side dashboard aggregates
+ *
+ * Totals by status, type, installments and creation hour are kept in
+ * memory ({@link DashboardCounters}) and updated from every
+ * {@link TransactionStatusChangedEvent}: payment acceptance and checkout
+ * link creation (CheckoutOutboxService), webhooks and status checks.
+ * Reading the dashboard never touches the database.
+ *
+ * The counters are written to a checkpoint file periodically and on
+ * shutdown. On startup the checkpoint is loaded and only the transactions
+ * changed since then are read back; without a checkpoint (first start) the
+ * whole table is scanned once.
+ */
+@Slf4j
+@Service
+public class DashboardAggregationService implements SmartLifecycle {
+
+    private final DashboardCounters counters;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final Path checkpointFile;
+
+    private volatile boolean running;
+
+    /**
+     * Set in application.properties as:
+     * ipsim.dashboard.checkpoint.file=./data/dashboard-aggregates.json
+     * ipsim.dashboard.checkpoint.overlap=2m
+     */
+    public DashboardAggregationService(
+            @Value("${ipsim.dashboard.checkpoint.file:./data/dashboard-aggregates.json}") Path checkpointFile,
+            @Value("${ipsim.dashboard.checkpoint.overlap:2m}") Duration overlap,
+            TransactionRepository transactionRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.counters = new DashboardCounters(overlap, Clock.systemDefaultZone());
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.checkpointFile = checkpointFile;
+    }
+
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        counters.apply(event.transactionId(), event.previousStatus(), event.previousInstallments(), event.status(),
+                event.type(), event.installments(), cents(event.amount()), cents(event.netAmount()), event.createdAt());
+    }
+
+    /**
+     * Aggregates of the transactions created in [from, to)
+     *
+     * @param from Optional lower bound, rounded down to the hour
+     * @param to Optional exclusive upper bound
+     * @return Totals, breakdowns and hourly buckets
+     */
+    public DashboardSummaryDTO summary(LocalDateTime from, LocalDateTime to) {
+        Totals total = new Totals();
+        Map<TransactionStatus, Totals> byStatus = new EnumMap<>(TransactionStatus.class);
+        Map<TransactionType, Totals> byType = new EnumMap<>(TransactionType.class);
+        Map<Integer, Totals> byInstallments = new TreeMap<>();
+        Map<LocalDateTime, Totals> bucketTotals = new TreeMap<>();
+        Map<LocalDateTime, Map<TransactionStatus, Totals>> bucketByStatus = new TreeMap<>();
+
+        for (DashboardCounters.CellSnapshot cell : counters.cells(from, to)) {
+            total.add(cell);
+            byStatus.computeIfAbsent(cell.status(), k -> new Totals()).add(cell);
+            byType.computeIfAbsent(cell.type(), k -> new Totals()).add(cell);
+            byInstallments.computeIfAbsent(cell.installments(), k -> new Totals()).add(cell);
+            bucketTotals.computeIfAbsent(cell.hour(), k -> new Totals()).add(cell);
+            bucketByStatus.computeIfAbsent(cell.hour(), k -> new EnumMap<>(TransactionStatus.class))
+                    .computeIfAbsent(cell.status(), k -> new Totals()).add(cell);
+        }
+
+        List<DashboardBucketDTO> buckets = new ArrayList<>(bucketTotals.size());
+        bucketTotals.forEach((hour, totals) -> buckets.add(
+                new DashboardBucketDTO(hour, totals.toDto(), toDtos(bucketByStatus.get(hour)))));
+
+        return new DashboardSummaryDTO(total.toDto(), toDtos(byStatus), toDtos(byType), toDtos(byInstallments), buckets);
+    }
+
+    /**
+     * Number of transactions currently in a status, without a database query
+     */
+    public long count(TransactionStatus status) {
+        return counters.count(status);
+    }
+
+    /**
+     * Writes the counters to the checkpoint file
+     */
+    @Scheduled(initialDelayString = "${ipsim.dashboard.checkpoint.interval-ms:60000}",
+            fixedDelayString = "${ipsim.dashboard.checkpoint.interval-ms:60000}")
+    public void checkpoint() {
+        if (!running) {
+            return;
+        }
+        writeCheckpoint();
+    }
+
+    @Override
+    public void start() {
+        recover();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        writeCheckpoint();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server and the webhook consumer, stops after
+     * them, so no status change is missed by the final checkpoint
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 2;
+    }
+
+    /**
+     * Loads the checkpoint and replays the transactions changed since
+     *
+     * Replay starts {@code overlap} before the checkpoint: changes already
+     * counted are recognized (see {@link DashboardCounters}) and skipped.
+     * A replayed transaction created before that point was counted as
+     * PENDING, unless the checkpoint still remembers it as PENDING_CREATE
+     * (those are never forgotten while they last). Its installments are
+     * taken from the row: an approval that changed them is only moved from
+     * the right cell while the checkpoint still remembers the transaction.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        Optional<DashboardCounters.Snapshot> checkpoint = readCheckpoint();
+        LocalDateTime since = checkpoint
+                .map(snapshot -> snapshot.takenAt().minus(counters.window()))
+                .orElse(null);
+        checkpoint.ifPresent(counters::restore);
+
+        AtomicLong replayed = new AtomicLong();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<TransactionAggregateRef> rows = transactionRepository.streamForAggregates(since)) {
+                rows.forEach(row -> {
+                    counters.apply(
+                            row.id(),
+                            since != null && row.createdAt().isBefore(since) ? TransactionStatus.PENDING : null,
+                            row.installments(), row.status(), row.type(), row.installments(),
+                            cents(row.amount()), cents(row.netAmount()), row.createdAt(), row.timestamp());
+                    replayed.incrementAndGet();
+                });
+            }
+        });
+        counters.prune();
+
+        log.info("Dashboard aggregates {} in {} ms ({} transactions read)",
+                since == null ? "rebuilt" : "restored from checkpoint",
+                (System.nanoTime() - start) / 1_000_000, replayed.get());
+    }
+
+    private Optional<DashboardCounters.Snapshot> readCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(checkpointFile.toFile(), DashboardCounters.Snapshot.class));
+        } catch (IOException e) {
+            log.warn("Unreadable dashboard checkpoint {}, rebuilding from the database", checkpointFile, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write to a temporary file, then rename: a crash never leaves a
+     * truncated checkpoint behind
+     */
+    private void writeCheckpoint() {
+        try {
+            Path parent = checkpointFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "dashboard", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), counters.snapshot());
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to write dashboard checkpoint {}", checkpointFile, e);
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static <K> Map<K, DashboardAggregateDTO> toDtos(Map<K, Totals> totals) {
+        Map<K, DashboardAggregateDTO> result = new LinkedHashMap<>();
+        totals.forEach((key, value) -> result.put(key, value.toDto()));
+        return result;
+    }
+
+    /**
+     * Running sums while building a summary
+     */
+    private static final class Totals {
+        long count;
+        long amountCents;
+        long netAmountCents;
+
+        void add(DashboardCounters.CellSnapshot cell) {
+            count += cell.count();
+            amountCents += cell.amountCents();
+            netAmountCents += cell.netAmountCents();
+        }
+
+        DashboardAggregateDTO toDto() {
+            return new DashboardAggregateDTO(count, BigDecimal.valueOf(amountCents, 2), BigDecimal.valueOf(netAmountCents, 2));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incrementally maintained dashboard aggregates
+ *
+ * Count, amount and net amount (in cents) per (creation hour, status,
+ * type, installments). A status change moves the transaction from one cell
+ * to another; type and creation hour never change, but an approval may
+ * replace the installments with the ones actually paid, so the move starts
+ * from the installments the transaction was counted with.
+ *
+ * Only PENDING_CREATE and PENDING transactions ever change status, and their
+ * net amount is not known yet, so a move takes the count and amount out of
+ * the old cell but no net amount.
+ *
+ * The last status (and installments) applied per transaction is remembered for a while
+ * ({@code window}): a change that was already counted (duplicate event, or
+ * a row already replayed after a restart) is ignored, and a stale previous
+ * status in an event is corrected, and a non-terminal status arriving after
+ * a terminal one (events published out of order) is ignored. Snapshots
+ * include those recent entries so a restored snapshot can be caught up
+ * exactly.
+ *
+ * PENDING_CREATE entries are kept past the window, until the transaction
+ * moves on: a replayed change can then tell a transaction counted as
+ * PENDING_CREATE from one counted as PENDING, however long the checkout
+ * link took.
+ */
+class DashboardCounters {
+
+    record Key(LocalDateTime hour, TransactionStatus status, TransactionType type, int installments) {
+    }
+
+    record CellSnapshot(LocalDateTime hour, TransactionStatus status, TransactionType type, int installments,
+                        long count, long amountCents, long netAmountCents) {
+    }
+
+    record Recent(TransactionStatus status, int installments, LocalDateTime appliedAt) {
+    }
+
+    /**
+     * @param takenAt When the snapshot was taken
+     * @param cells Every non-empty cell
+     * @param recent Last status applied per transaction, within the window
+     */
+    record Snapshot(LocalDateTime takenAt, List<CellSnapshot> cells, Map<UUID, Recent> recent) {
+    }
+
+    private static final class Cell {
+        final LongAdder count = new LongAdder();
+        final LongAdder amountCents = new LongAdder();
+        final LongAdder netAmountCents = new LongAdder();
+    }
+
+    private final Map<Key, Cell> cells = new ConcurrentHashMap<>();
+    private final Map<UUID, Recent> recent = new ConcurrentHashMap<>();
+    // Updates share the read lock; snapshot/restore take the write lock to see a consistent state
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Duration window;
+    private final Clock clock;
+
+    DashboardCounters(Duration window, Clock clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    /**
+     * Applies a status change, now
+     *
+     * @return false if the change was already counted
+     */
+    boolean apply(UUID id, TransactionStatus previousStatus, int previousInstallments, TransactionStatus status,
+                  TransactionType type, int installments, long amountCents, long netAmountCents,
+                  LocalDateTime createdAt) {
+        return apply(id, previousStatus, previousInstallments, status, type, installments, amountCents,
+                netAmountCents, createdAt, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Applies a status change that happened at {@code changedAt}
+     *
+     * @param previousStatus Status before the change, null for a new transaction
+     * @param previousInstallments Installments before the change
+     * @return false if the change was already counted
+     */
+    boolean apply(UUID id, TransactionStatus previousStatus, int previousInstallments, TransactionStatus status,
+                  TransactionType type, int installments, long amountCents, long netAmountCents,
+                  LocalDateTime createdAt, LocalDateTime changedAt) {
+        LocalDateTime hour = createdAt.truncatedTo(ChronoUnit.HOURS);
+        boolean[] applied = new boolean[1];
+
+        lock.readLock().lock();
+        try {
+            // compute() serializes concurrent changes of the same transaction
+            recent.compute(id, (key, last) -> {
+                TransactionStatus from = last != null ? last.status() : previousStatus;
+                int fromInstallments = last != null ? last.installments() : previousInstallments;
+                // Already counted, or a late event once the transaction is final
+                if (from == status || (from != null && from.isTerminal() && !status.isTerminal())) {
+                    return last;
+                }
+                if (from != null) {
+                    Cell old = cell(new Key(hour, from, type, fromInstallments));
+                    old.count.decrement();
+                    old.amountCents.add(-amountCents);
+                }
+                Cell cell = cell(new Key(hour, status, type, installments));
+                cell.count.increment();
+                cell.amountCents.add(amountCents);
+                cell.netAmountCents.add(netAmountCents);
+                applied[0] = true;
+                // Replayed changes older than the window need no duplicate detection
+                boolean forget = changedAt.isBefore(LocalDateTime.now(clock).minus(window))
+                        && status != TransactionStatus.PENDING_CREATE;
+                return forget ? null : new Recent(status, installments, changedAt);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return applied[0];
+    }
+
+    /**
+     * Cells whose creation hour falls in [from, to), either bound optional
+     */
+    List<CellSnapshot> cells(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime fromHour = from != null ? from.truncatedTo(ChronoUnit.HOURS) : null;
+        List<CellSnapshot> result = new ArrayList<>();
+        cells.forEach((key, cell) -> {
+            if ((fromHour == null || !key.hour().isBefore(fromHour)) && (to == null || key.hour().isBefore(to))) {
+                CellSnapshot snapshot = snapshot(key, cell);
+                if (snapshot.count() != 0) {
+                    result.add(snapshot);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Number of transactions currently in a status, across every cell
+     */
+    long count(TransactionStatus status) {
+        long count = 0;
+        for (Map.Entry<Key, Cell> entry : cells.entrySet()) {
+            if (entry.getKey().status() == status) {
+                count += entry.getValue().count.sum();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Consistent copy of every cell and of the recent changes still in the window
+     */
+    Snapshot snapshot() {
+        lock.writeLock().lock();
+        try {
+            LocalDateTime now = LocalDateTime.now(clock);
+            pruneBefore(now.minus(window));
+            return new Snapshot(now, cells(null, null), new HashMap<>(recent));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the current state with a snapshot
+     */
+    void restore(Snapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            recent.clear();
+            for (CellSnapshot s : snapshot.cells()) {
+                Cell cell = cell(new Key(s.hour(), s.status(), s.type(), s.installments()));
+                cell.count.add(s.count());
+                cell.amountCents.add(s.amountCents());
+                cell.netAmountCents.add(s.netAmountCents());
+            }
+            recent.putAll(snapshot.recent());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets recent changes older than the window, except PENDING_CREATE
+     */
+    void prune() {
+        pruneBefore(LocalDateTime.now(clock).minus(window));
+    }
+
+    Duration window() {
+        return window;
+    }
+
+    private void pruneBefore(LocalDateTime cutoff) {
+        recent.values().removeIf(r -> r.appliedAt().isBefore(cutoff) && r.status() != TransactionStatus.PENDING_CREATE);
+    }
+
+    private Cell cell(Key key) {
+        return cells.computeIfAbsent(key, k -> new Cell());
+    }
+
+    private static CellSnapshot snapshot(Key key, Cell cell) {
+        return new CellSnapshot(key.hour(), key.status(), key.type(), key.installments(),
+                cell.count.sum(), cell.amountCents.sum(), cell.netAmountCents.sum());
+    }
+}
@@ -0,0 +1,186 @@
+package com.cloudwalk.ipsim.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Circuit breaker and bulkheads around the InfinitePay API
+ *
+ * One breaker is shared by every call, since they all depend on the same
+ * upstream. Checkout creation and status checks get separate bulkheads so
+ * a burst of status checks cannot starve checkouts.
+ *
+ * Rejected calls fail immediately with {@link UpstreamUnavailableException}.
+ * 4xx responses (other than 429) are the caller's fault and do not count as
+ * upstream failures.
+ *
+ * Metrics:
+ * - ipsim.infinitepay.calls: latency of calls that reached the API, tagged
+ *   operation and outcome (success, error)
+ * - ipsim.infinitepay.circuit.state: 0 closed, 1 open, 2 half-open
+ * - ipsim.infinitepay.circuit.transitions: state changes, tagged from/to
+ * - ipsim.infinitepay.calls.rejected: tagged operation and reason
+ *   (circuit_open, bulkhead_full)
+ * - ipsim.infinitepay.bulkhead.in.flight: tagged operation
+ */
+@Slf4j
+@Component
+public class InfinitePayResilience {
+
+    static final String CHECKOUT = "checkout";
+    static final String STATUS_CHECK = "status_check";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Operation checkout;
+    private final Operation statusCheck;
+    private final MeterRegistry meterRegistry;
+
+    public InfinitePayResilience(
+            @Value("${infinitepay.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${infinitepay.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${infinitepay.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${infinitepay.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${infinitepay.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${infinitepay.bulkhead.checkout-max-concurrent:50}") int checkoutMaxConcurrent,
+            @Value("${infinitepay.bulkhead.status-check-max-concurrent:20}") int statusCheckMaxConcurrent,
+            MeterRegistry meterRegistry) {
+
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                openDuration.toNanos(), halfOpenCalls, System::nanoTime, this::onTransition);
+        this.checkout = new Operation(CHECKOUT, new Bulkhead(checkoutMaxConcurrent), meterRegistry);
+        this.statusCheck = new Operation(STATUS_CHECK, new Bulkhead(statusCheckMaxConcurrent), meterRegistry);
+
+        Gauge.builder("ipsim.infinitepay.circuit.state", circuitBreaker, cb -> cb.state().ordinal())
+                .description("InfinitePay circuit breaker state (0 closed, 1 open, 2 half-open)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Protects a checkout link creation call
+     */
+    public <T> Mono<T> checkout(Mono<T> call) {
+        return protect(checkout, call);
+    }
+
+    /**
+     * Protects a payment status check call
+     */
+    public <T> Mono<T> statusCheck(Mono<T> call) {
+        return protect(statusCheck, call);
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private <T> Mono<T> protect(Operation operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long permission = circuitBreaker.tryAcquirePermission();
+            if (permission == CircuitBreaker.NO_PERMISSION) {
+                operation.rejectedCircuitOpen.increment();
+                return Mono.error(new UpstreamUnavailableException(
+                        "InfinitePay is unavailable, try again later",
+                        Duration.ofNanos(circuitBreaker.remainingOpenNanos())));
+            }
+            if (!operation.bulkhead.tryAcquire()) {
+                circuitBreaker.releasePermission(permission);
+                operation.rejectedBulkheadFull.increment();
+                return Mono.error(new UpstreamUnavailableException(
+                        "Too many concurrent InfinitePay calls, try again later", Duration.ofSeconds(1)));
+            }
+
+            // Exactly one outcome is reported, whichever signal comes first
+            AtomicBoolean reported = new AtomicBoolean();
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(value -> {
+                        if (reported.compareAndSet(false, true)) {
+                            operation.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            circuitBreaker.onSuccess(permission);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (reported.compareAndSet(false, true)) {
+                            operation.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            if (isUpstreamFailure(e)) {
+                                circuitBreaker.onFailure(permission);
+                            } else {
+                                circuitBreaker.onSuccess(permission);
+                            }
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (reported.compareAndSet(false, true)) {
+                            circuitBreaker.releasePermission(permission);
+                        }
+                    })
+                    .doFinally(signal -> operation.bulkhead.release());
+        });
+    }
+
+    private static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof WebClientResponseException wcre) {
+            int status = wcre.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private void onTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        log.warn("InfinitePay circuit breaker: {} -> {}", from, to);
+        meterRegistry.counter("ipsim.infinitepay.circuit.transitions",
+                "from", from.name().toLowerCase(), "to", to.name().toLowerCase()).increment();
+    }
+
+    /**
+     * Bulkhead and pre-registered timers and rejection counters for one call
+     * type, so recording never looks up or allocates a meter
+     */
+    private static final class Operation {
+
+        final Bulkhead bulkhead;
+        final Timer success;
+        final Timer error;
+        final Counter rejectedCircuitOpen;
+        final Counter rejectedBulkheadFull;
+
+        Operation(String name, Bulkhead bulkhead, MeterRegistry meterRegistry) {
+            this.bulkhead = bulkhead;
+            this.success = callTimer(meterRegistry, name, "success");
+            this.error = callTimer(meterRegistry, name, "error");
+            this.rejectedCircuitOpen = rejectedCounter(meterRegistry, name, "circuit_open");
+            this.rejectedBulkheadFull = rejectedCounter(meterRegistry, name, "bulkhead_full");
+            Gauge.builder("ipsim.infinitepay.bulkhead.in.flight", bulkhead, Bulkhead::inFlight)
+                    .description("InfinitePay calls in flight")
+                    .tag("operation", name)
+                    .register(meterRegistry);
+        }
+
+        private static Timer callTimer(MeterRegistry meterRegistry, String operation, String outcome) {
+            return Timer.builder("ipsim.infinitepay.calls")
+                    .description("InfinitePay API call latency")
+                    .tags("operation", operation, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private static Counter rejectedCounter(MeterRegistry meterRegistry, String operation, String reason) {
+            return Counter.builder("ipsim.infinitepay.calls.rejected")
+                    .description("InfinitePay calls rejected without reaching the API")
+                    .tags("operation", operation, "reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+}
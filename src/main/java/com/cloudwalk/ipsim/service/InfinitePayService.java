@@ -7,10 +7,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.Collections;
-import java.util.UUID;
 
 /**
  * Service for integrating with InfinitePay Checkout API
@@ -20,6 +20,13 @@ import java.util.UUID;
  * 2. Check payment status
  * 3. Handle API errors and retries
  *
+ * Every call has a blocking and a Mono-returning variant; the blocking one
+ * simply blocks on the Mono.
+ *
+ * Every call goes through {@link InfinitePayResilience}: while InfinitePay
+ * is failing, calls fail fast with {@link UpstreamUnavailableException}
+ * instead of waiting for a timeout.
+ *
  * API Documentation: https://www.infinitepay.io/checkout
  */
 @Slf4j
@@ -29,6 +36,8 @@ public class InfinitePayService {
 
     private final WebClient infinitePayWebClient;
     private final InfinitePayConfig config;
+    private final OrderNsuGenerator orderNsuGenerator;
+    private final InfinitePayResilience resilience;
 
     /**
      * Creates a checkout link for a payment transaction
@@ -38,6 +47,9 @@ public class InfinitePayService {
      * 2. Call InfinitePay API to generate payment link
      * 3. Return checkout URL to be opened in browser
      *
+     * Blocking wrapper around {@link #createCheckoutLinkAsync}. Prefer the
+     * async variant on request threads.
+     *
      * @param amount Total amount in BigDecimal (e.g., 15.50 for R$ 15.50)
      * @param description Description of what's being purchased
      * @param orderNsu Your internal order identifier (for tracking)
@@ -53,7 +65,27 @@ public class InfinitePayService {
             String customerName,
             String customerEmail) {
 
-        log.info("Creating InfinitePay checkout link for order: {}, amount: {}", orderNsu, amount);
+        return createCheckoutLinkAsync(amount, description, orderNsu, customerName, customerEmail)
+                .block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #createCheckoutLink}
+     *
+     * The returned Mono is cold: nothing is sent to InfinitePay until it is
+     * subscribed. Errors are mapped to the same RuntimeException messages the
+     * blocking variant throws.
+     *
+     * @return Mono emitting the checkout response
+     */
+    public Mono<InfinitePayCheckoutResponse> createCheckoutLinkAsync(
+            BigDecimal amount,
+            String description,
+            String orderNsu,
+            String customerName,
+            String customerEmail) {
+
+        log.debug("Creating InfinitePay checkout link for order: {}, amount: {}", orderNsu, amount);
 
         // Convert BigDecimal amount to cents (Long)
         // R$ 15.50 -> 1550 cents
@@ -86,27 +118,28 @@ public class InfinitePayService {
                 .customer(customer)
                 .build();
 
-        try {
-            // Call InfinitePay API
-            InfinitePayCheckoutResponse response = infinitePayWebClient
-                    .post()
-                    .uri("/invoices/public/checkout/links")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(InfinitePayCheckoutResponse.class)
-                    .block(); // Blocking call (convert to async if needed)
-
-            log.info("Checkout link created successfully: {}", response.getCheckoutUrl());
-            return response;
-
-        } catch (WebClientResponseException e) {
-            log.error("InfinitePay API error: Status {}, Body: {}",
-                    e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to create checkout link: " + e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("Unexpected error creating checkout link", e);
-            throw new RuntimeException("Failed to create checkout link", e);
-        }
+        // Call InfinitePay API
+        return resilience.checkout(infinitePayWebClient
+                        .post()
+                        .uri("/invoices/public/checkout/links")
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(InfinitePayCheckoutResponse.class))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Empty response from InfinitePay")))
+                .doOnNext(response -> log.debug("Checkout link created successfully: {}", response.getCheckoutUrl()))
+                .onErrorMap(e -> {
+                    if (e instanceof UpstreamUnavailableException) {
+                        log.warn("InfinitePay call rejected: {}", e.getMessage());
+                        return e;
+                    }
+                    if (e instanceof WebClientResponseException wcre) {
+                        log.error("InfinitePay API error: Status {}, Body: {}",
+                                wcre.getStatusCode(), wcre.getResponseBodyAsString());
+                        return new RuntimeException("Failed to create checkout link: " + e.getMessage(), e);
+                    }
+                    log.error("Unexpected error creating checkout link", e);
+                    return new RuntimeException("Failed to create checkout link", e);
+                });
     }
 
     /**
@@ -117,6 +150,8 @@ public class InfinitePayService {
      * - Verifying payment before fulfillment
      * - Manual reconciliation
      *
+     * Blocking wrapper around {@link #checkPaymentStatusAsync}.
+     *
      * @param orderNsu Your internal order identifier
      * @param slug InfinitePay invoice slug
      * @param transactionNsu InfinitePay transaction NSU
@@ -127,7 +162,20 @@ public class InfinitePayService {
             String slug,
             String transactionNsu) {
 
-        log.info("Checking payment status for order: {}", orderNsu);
+        return checkPaymentStatusAsync(orderNsu, slug, transactionNsu).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #checkPaymentStatus}
+     *
+     * @return Mono emitting the payment status response
+     */
+    public Mono<PaymentStatusCheckResponse> checkPaymentStatusAsync(
+            String orderNsu,
+            String slug,
+            String transactionNsu) {
+
+        log.debug("Checking payment status for order: {}", orderNsu);
 
         PaymentStatusCheckRequest request = PaymentStatusCheckRequest.builder()
                 .handle(config.getHandle())
@@ -136,35 +184,30 @@ public class InfinitePayService {
                 .transactionNsu(transactionNsu)
                 .build();
 
-        try {
-            PaymentStatusCheckResponse response = infinitePayWebClient
-                    .post()
-                    .uri("/invoices/public/checkout/payment_check")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(PaymentStatusCheckResponse.class)
-                    .block();
-
-            log.info("Payment status check completed. Paid: {}", response.getPaid());
-            return response;
-
-        } catch (WebClientResponseException e) {
-            log.error("Error checking payment status: {}", e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to check payment status", e);
-        }
+        return resilience.statusCheck(infinitePayWebClient
+                        .post()
+                        .uri("/invoices/public/checkout/payment_check")
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(PaymentStatusCheckResponse.class))
+                .doOnNext(response -> log.debug("Payment status check completed. Paid: {}", response.getPaid()))
+                .onErrorMap(WebClientResponseException.class, e -> {
+                    log.error("Error checking payment status: {}", e.getResponseBodyAsString());
+                    return new RuntimeException("Failed to check payment status", e);
+                });
     }
 
     /**
      * Generates a unique order NSU (internal tracking ID)
      *
-     * Format: ORD-{timestamp}-{uuid-prefix}
-     * Example: ORD-1708234567-a1b2c3
+     * Format: ORD-{timestamp}-{suffix}
+     * Example: ORD-1708234567-3e80a001
+     *
+     * The suffix depends on the configured {@link OrderNsuGenerator}
      *
      * @return Unique order identifier
      */
     public String generateOrderNsu() {
-        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-        String uuidPrefix = UUID.randomUUID().toString().substring(0, 6);
-        return "ORD-" + timestamp + "-" + uuidPrefix;
+        return orderNsuGenerator.next();
     }
 }
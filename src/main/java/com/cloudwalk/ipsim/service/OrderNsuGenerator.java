@@ -0,0 +1,15 @@
+package com.cloudwalk.ipsim.service;
+
+/**
+ * Source of internal order identifiers (order_nsu)
+ *
+ * Every implementation produces ORD-{epochSeconds}-{suffix}, fits the
+ * 50-character orderNsu column and is safe to call from any thread.
+ */
+public interface OrderNsuGenerator {
+
+    /**
+     * @return A new order identifier, never returned before by this generator
+     */
+    String next();
+}
@@ -1,28 +1,35 @@
 package com.cloudwalk.ipsim.service;
 
-import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayCheckoutResponse;
+import com.cloudwalk.ipsim.config.LogSamplingFilter;
+import com.cloudwalk.ipsim.dto.PaymentRequestDTO;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.Card;
 import com.cloudwalk.ipsim.model.Transaction;
 import com.cloudwalk.ipsim.model.TransactionStatus;
 import com.cloudwalk.ipsim.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for processing payments via InfinitePay
  *
- * UPDATED: Now integrates with real InfinitePay API instead of local simulation
- *
  * Flow:
  * 1. Receive payment request from frontend
- * 2. Generate unique order NSU
- * 3. Call InfinitePay API to create checkout link
- * 4. Save transaction with PENDING status
- * 5. Return checkout URL to frontend
- * 6. Wait for webhook to update status to APPROVED
+ * 2. Save the transaction as PENDING_CREATE with an outbox entry, in one
+ *    database transaction (see {@link CheckoutOutboxService})
+ * 3. Return right away; the frontend follows the order over SSE
+ * 4. A relay worker creates the InfinitePay checkout link and moves the
+ *    transaction to PENDING with its checkout URL
+ * 5. Wait for webhook to update status to APPROVED
  */
 @Slf4j
 @Service
@@ -30,96 +37,83 @@ import java.time.LocalDateTime;
 public class PaymentService {
 
     private final TransactionRepository transactionRepository;
-    private final InfinitePayService infinitePayService;
+    private final CheckoutOutboxService checkoutOutboxService;
+    private final PaymentStatusCheckCoalescer paymentStatusCheckCoalescer;
+    private final CardVaultService cardVaultService;
+    private final Scheduler jpaScheduler;
+    private final ApplicationEventPublisher eventPublisher;
     // Note: FeeService is no longer needed since InfinitePay handles fees
     // Keeping it commented for reference if you want to show estimated fees in UI
     // private final FeeService feeService;
 
     /**
-     * Processes a payment by creating an InfinitePay checkout link
+     * Maps a payment request to a new transaction entity
      *
-     * IMPORTANT: This method now returns a transaction in PENDING status
-     * The transaction will be updated to APPROVED via webhook when payment succeeds
+     * No database access: the card is only tokenized here and resolved to
+     * its stored row when the payment is saved, on the JPA scheduler.
+     *
+     * @param request Payment payload, already validated
+     * @return Unsaved transaction
+     * @throws IllegalArgumentException if the card number is too short
+     */
+    public Transaction newTransaction(PaymentRequestDTO request) {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(request.getAmount());
+        transaction.setType(request.getType());
+        transaction.setInstallments(request.getInstallments());
+
+        Card card = cardVaultService.cardFor(request.getCardNumber(), request.getCardHolder(), request.getCardExpiry());
+        transaction.setCard(card);
+        return transaction;
+    }
+
+    /**
+     * Accepts a payment; its checkout link is created in the background
+     *
+     * IMPORTANT: This method returns a transaction in PENDING_CREATE status,
+     * without a checkout URL. It moves to PENDING (checkout URL set) once
+     * the outbox relay has created the link, then to APPROVED via webhook.
      *
      * @param transaction Transaction entity with amount, type, card details
-     * @return Transaction with checkout URL and PENDING status
+     * @return Transaction with order NSU and PENDING_CREATE status
+     * @throws UpstreamUnavailableException when the checkout backlog is full
      */
     public Transaction processPayment(Transaction transaction) {
-        log.info("Processing payment via InfinitePay. Amount: {}", transaction.getAmount());
-
-        // 1. Validate
-        if (transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Amount must be greater than zero");
-        }
-
-        // 2. Generate unique order NSU
-        String orderNsu = infinitePayService.generateOrderNsu();
-        transaction.setOrderNsu(orderNsu);
-
-        // 3. Create checkout link via InfinitePay API
-        try {
-            // Build description from transaction type
-            String description = buildPaymentDescription(transaction);
-
-            // Extract customer info from card (if available)
-            String customerName = transaction.getCard() != null
-                    ? transaction.getCard().getCardHolder()
-                    : null;
-
-            // Call InfinitePay API
-            InfinitePayCheckoutResponse checkoutResponse = infinitePayService.createCheckoutLink(
-                    transaction.getAmount(),
-                    description,
-                    orderNsu,
-                    customerName,
-                    null // email - could be added to Card entity if needed
-            );
-
-            // 4. Store checkout link details in transaction
-            transaction.setCheckoutUrl(checkoutResponse.getCheckoutUrl());
-            transaction.setInfinitePaySlug(checkoutResponse.getSlug());
-
-            // 5. Set status to PENDING (will be updated to APPROVED by webhook)
-            transaction.setStatus(TransactionStatus.PENDING);
-            transaction.setTimestamp(LocalDateTime.now());
-
-            // Note: netAmount is null at this point
-            // InfinitePay handles fees internally
-            // The webhook will contain actual received amount
+        log.debug("Accepting payment. Amount: {}", transaction.getAmount());
 
-            // 6. Save transaction
-            Transaction savedTransaction = transactionRepository.save(transaction);
-            log.info("Payment initiated. Order NSU: {}, Checkout URL: {}",
-                    orderNsu, checkoutResponse.getCheckoutUrl());
+        validate(transaction);
 
-            return savedTransaction;
-
-        } catch (Exception e) {
-            log.error("Failed to create InfinitePay checkout link", e);
-            // Set status to DECLINED if checkout creation fails
-            transaction.setStatus(TransactionStatus.DECLINED);
-            transaction.setTimestamp(LocalDateTime.now());
-            transactionRepository.save(transaction);
-            throw new RuntimeException("Failed to initiate payment: " + e.getMessage(), e);
-        }
+        Transaction saved = checkoutOutboxService.enqueue(List.of(transaction)).get(0);
+        log.debug("Payment accepted. Order NSU: {}", saved.getOrderNsu());
+        return saved;
     }
 
     /**
-     * Builds a human-readable payment description
+     * Non-blocking variant of {@link #processPayment}
      *
-     * @param transaction Transaction details
-     * @return Description string for checkout
+     * The single database write runs on the bounded {@code jpaScheduler}, so
+     * no request thread waits on it.
+     *
+     * @param transaction Transaction entity with amount, type, card details
+     * @return Future completing with the PENDING_CREATE transaction, or
+     *         exceptionally with the same RuntimeException the blocking
+     *         variant throws
      */
-    private String buildPaymentDescription(Transaction transaction) {
-        String typeDesc = switch (transaction.getType()) {
-            case DEBIT -> "Pagamento com Débito";
-            case CREDIT -> transaction.getInstallments() > 1
-                    ? "Pagamento com Crédito (" + transaction.getInstallments() + "x)"
-                    : "Pagamento com Crédito à vista";
-            case PIX -> "Pagamento via PIX";
-        };
-
-        return typeDesc + " - R$ " + transaction.getAmount();
+    public CompletableFuture<Transaction> processPaymentAsync(Transaction transaction) {
+        validate(transaction);
+
+        // Logs on the JPA thread follow this request's sampling decision
+        String logSampling = LogSamplingFilter.currentDecision();
+
+        return Mono.fromCallable(() -> LogSamplingFilter.callWith(logSampling, () -> processPayment(transaction)))
+                .subscribeOn(jpaScheduler)
+                .toFuture();
+    }
+
+    void validate(Transaction transaction) {
+        if (transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        }
     }
 
     /**
@@ -130,6 +124,11 @@ public class PaymentService {
      * - Verify payment before order fulfillment
      * - Manual reconciliation
      *
+     * Concurrent checks for the same order share one upstream request, and
+     * recent answers are reused (see {@link PaymentStatusCheckCoalescer}).
+     * Orders already APPROVED, or still waiting for their checkout link, are
+     * answered without calling InfinitePay.
+     *
      * @param orderNsu Your internal order identifier
      * @return true if payment is complete, false otherwise
      */
@@ -139,18 +138,29 @@ public class PaymentService {
         Transaction transaction = transactionRepository.findByOrderNsu(orderNsu)
                 .orElseThrow(() -> new RuntimeException("Transaction not found: " + orderNsu));
 
+        if (transaction.getStatus() == TransactionStatus.APPROVED) {
+            return true;
+        }
+        if (transaction.getStatus() == TransactionStatus.PENDING_CREATE) {
+            // Checkout link not created yet, nothing to ask InfinitePay about
+            return false;
+        }
+
         try {
-            var statusResponse = infinitePayService.checkPaymentStatus(
+            var statusResponse = paymentStatusCheckCoalescer.check(
                     orderNsu,
                     transaction.getInfinitePaySlug(),
                     transaction.getInfinitePayTransactionNsu()
-            );
+            ).block();
 
-            if (statusResponse.getPaid()) {
+            if (statusResponse != null && Boolean.TRUE.equals(statusResponse.getPaid())) {
                 // Update transaction if it's marked as paid
                 if (transaction.getStatus() != TransactionStatus.APPROVED) {
+                    TransactionStatus previousStatus = transaction.getStatus();
                     transaction.setStatus(TransactionStatus.APPROVED);
-                    transactionRepository.save(transaction);
+                    transaction.setTimestamp(LocalDateTime.now());
+                    Transaction savedTransaction = transactionRepository.save(transaction);
+                    eventPublisher.publishEvent(TransactionStatusChangedEvent.of(savedTransaction, previousStatus));
                     log.info("Payment confirmed via status check. Order: {}", orderNsu);
                 }
                 return true;
@@ -159,7 +169,7 @@ public class PaymentService {
             return false;
 
         } catch (Exception e) {
-            log.error("Error checking payment status for order: " + orderNsu, e);
+            log.error("Error checking payment status for order: {}", orderNsu, e);
             return false;
         }
     }
@@ -0,0 +1,88 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Single-flight front for InfinitePay payment status checks
+ *
+ * Concurrent callers asking about the same order share one in-flight
+ * payment_check request. Once it completes, the answer is kept:
+ * - paid: forever (bounded only by the maximum size), it can no longer change
+ * - not paid: for a short window, so bursts of checks collapse into one
+ * Failed checks are not cached; the next caller starts a new request.
+ *
+ * Hit/miss counts are published as cache.* metrics with
+ * tag cache=infinitepay.paymentStatus (every miss is one upstream call).
+ */
+@Service
+public class PaymentStatusCheckCoalescer {
+
+    static final String CACHE_NAME = "infinitepay.paymentStatus";
+
+    private final InfinitePayService infinitePayService;
+    private final AsyncCache<String, PaymentStatusCheckResponse> results;
+
+    public PaymentStatusCheckCoalescer(
+            InfinitePayService infinitePayService,
+            @Value("${ipsim.status-check.max-size:10000}") long maxSize,
+            @Value("${ipsim.status-check.unpaid-ttl:2s}") Duration unpaidTtl,
+            MeterRegistry meterRegistry) {
+
+        this.infinitePayService = infinitePayService;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PaidForeverExpiry(unpaidTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, results.synchronous(), CACHE_NAME);
+    }
+
+    /**
+     * Returns the payment status, joining an in-flight check or reusing a
+     * recent answer when there is one
+     *
+     * @param orderNsu Your internal order identifier (the coalescing key)
+     * @param slug InfinitePay invoice slug
+     * @param transactionNsu InfinitePay transaction NSU
+     * @return Mono emitting the payment status response
+     */
+    public Mono<PaymentStatusCheckResponse> check(String orderNsu, String slug, String transactionNsu) {
+        // suppressCancel: one caller going away must not cancel the shared request
+        return Mono.fromFuture(() -> results.get(orderNsu, (key, executor) ->
+                infinitePayService.checkPaymentStatusAsync(key, slug, transactionNsu).toFuture()), true);
+    }
+
+    /**
+     * Paid answers never expire, anything else expires after a short TTL
+     */
+    private record PaidForeverExpiry(long unpaidTtlNanos) implements Expiry<String, PaymentStatusCheckResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, PaymentStatusCheckResponse value, long currentTime) {
+            return Boolean.TRUE.equals(value.getPaid()) ? Long.MAX_VALUE : unpaidTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, PaymentStatusCheckResponse value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, PaymentStatusCheckResponse value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
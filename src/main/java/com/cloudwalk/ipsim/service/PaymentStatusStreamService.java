@@ -0,0 +1,133 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Pushes payment status transitions to browsers over Server-Sent Events
+ *
+ * Subscribers are keyed by order NSU. Status changes arrive through the
+ * in-process event bus ({@link TransactionStatusChangedEvent}), so an open
+ * checkout costs no database query until something actually changes.
+ */
+@Slf4j
+@Service
+public class PaymentStatusStreamService {
+
+    static final String STATUS_EVENT = "status";
+
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * How long a subscription stays open without a terminal status
+     * Matches the simulator's 10 minute payment window.
+     *
+     * Set in application.properties as:
+     * ipsim.sse.timeout-ms=600000
+     */
+    @Value("${ipsim.sse.timeout-ms:600000}")
+    private long timeoutMs;
+
+    /**
+     * Opens a status stream for an order
+     *
+     * The stream is registered before the current state is read, so a
+     * change committed in between is pushed as well instead of being
+     * missed. The current state is then sent; if it is already terminal the
+     * stream is completed immediately.
+     *
+     * @param orderNsu Your internal order identifier
+     * @param current Reads the current state of the transaction
+     * @return Emitter to return from the controller
+     */
+    public SseEmitter subscribe(String orderNsu, Supplier<TransactionResponseDTO> current) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+
+        Set<SseEmitter> emitters = subscribers.computeIfAbsent(orderNsu, key -> ConcurrentHashMap.newKeySet());
+        emitters.add(emitter);
+
+        Runnable unsubscribe = () -> remove(orderNsu, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        TransactionResponseDTO snapshot;
+        try {
+            snapshot = current.get();
+        } catch (RuntimeException e) {
+            unsubscribe.run();
+            throw e;
+        }
+
+        send(emitter, snapshot);
+        if (snapshot.getStatus().isTerminal()) {
+            remove(orderNsu, emitter);
+            emitter.complete();
+        }
+
+        return emitter;
+    }
+
+    /**
+     * Forwards a status change to every subscriber of the order
+     */
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        Set<SseEmitter> emitters = event.isTerminal()
+                ? subscribers.remove(event.orderNsu())
+                : subscribers.get(event.orderNsu());
+        if (emitters == null) {
+            return;
+        }
+
+        TransactionResponseDTO payload = new TransactionResponseDTO(
+                event.transactionId(),
+                event.amount(),
+                event.netAmount(),
+                event.status(),
+                event.timestamp(),
+                event.createdAt(),
+                "",
+                event.checkoutUrl(),
+                event.orderNsu(),
+                event.receiptUrl());
+
+        for (SseEmitter emitter : emitters) {
+            send(emitter, payload);
+            if (event.isTerminal()) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private void send(SseEmitter emitter, TransactionResponseDTO payload) {
+        try {
+            emitter.send(SseEmitter.event().name(STATUS_EVENT).data(payload));
+        } catch (IOException e) {
+            // Client went away
+            log.debug("Dropping status event for order {}: {}", payload.getOrderNsu(), e.getMessage());
+            emitter.completeWithError(e);
+        } catch (IllegalStateException e) {
+            // Stream already completed by a concurrent terminal event
+            log.debug("Stream already closed for order {}", payload.getOrderNsu());
+        }
+    }
+
+    private void remove(String orderNsu, SseEmitter emitter) {
+        subscribers.computeIfPresent(orderNsu, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
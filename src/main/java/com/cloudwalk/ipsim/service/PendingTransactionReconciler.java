@@ -0,0 +1,305 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.PendingTransactionRef;
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckResponse;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Background reconciliation of stale PENDING transactions
+ *
+ * A webhook can get lost. Every run scans PENDING transactions older than
+ * a threshold (oldest first, keyset pages over the status + timestamp
+ * index) and asks InfinitePay about them:
+ * - At most {@code parallelism} checks in flight and at most
+ *   {@code ratePerSecond} started per second
+ * - Checks go through {@link PaymentStatusCheckCoalescer}, so they merge with
+ *   any manual check of the same order
+ * - Paid orders of a page are approved together with one saveAll
+ * - Orders still unpaid (or failing) back off exponentially before being
+ *   checked again
+ * - The run stops early when the InfinitePay circuit breaker rejects calls
+ *
+ * Metrics:
+ * - ipsim.reconciler.run: duration of each run
+ * - ipsim.reconciler.checked / approved / errors / skipped: per-order outcomes
+ * - ipsim.reconciler.backlog: stale PENDING transactions seen by the last run
+ * - ipsim.reconciler.lag.seconds: age of the oldest stale PENDING transaction
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "ipsim.reconciler.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingTransactionReconciler {
+
+    private final TransactionRepository transactionRepository;
+    private final PaymentStatusCheckCoalescer paymentStatusCheckCoalescer;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Duration staleAfter;
+    private final int batchSize;
+    private final int maxPerRun;
+    private final int parallelism;
+    private final Duration permitInterval;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    /**
+     * Orders that were checked and are not due again yet
+     */
+    private final Cache<String, Backoff> backoffs;
+
+    private final Timer runTimer;
+    private final Counter checked;
+    private final Counter approved;
+    private final Counter errors;
+    private final Counter skipped;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public PendingTransactionReconciler(
+            TransactionRepository transactionRepository,
+            PaymentStatusCheckCoalescer paymentStatusCheckCoalescer,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${ipsim.reconciler.stale-after:5m}") Duration staleAfter,
+            @Value("${ipsim.reconciler.batch-size:100}") int batchSize,
+            @Value("${ipsim.reconciler.max-per-run:1000}") int maxPerRun,
+            @Value("${ipsim.reconciler.parallelism:4}") int parallelism,
+            @Value("${ipsim.reconciler.rate-per-second:10}") int ratePerSecond,
+            @Value("${ipsim.reconciler.backoff.initial:1m}") Duration initialBackoff,
+            @Value("${ipsim.reconciler.backoff.max:1h}") Duration maxBackoff,
+            @Value("${ipsim.reconciler.backoff.max-tracked:100000}") long maxTracked,
+            MeterRegistry meterRegistry) {
+
+        if (ratePerSecond < 1) {
+            throw new IllegalArgumentException("ipsim.reconciler.rate-per-second must be at least 1");
+        }
+        this.transactionRepository = transactionRepository;
+        this.paymentStatusCheckCoalescer = paymentStatusCheckCoalescer;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.staleAfter = staleAfter;
+        this.batchSize = batchSize;
+        this.maxPerRun = maxPerRun;
+        this.parallelism = parallelism;
+        this.permitInterval = Duration.ofNanos(1_000_000_000L / ratePerSecond);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+
+        this.backoffs = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                // An order nobody checked for this long is due anyway
+                .expireAfterWrite(maxBackoff.multipliedBy(2))
+                .build();
+
+        this.runTimer = Timer.builder("ipsim.reconciler.run")
+                .description("Duration of a reconciliation run")
+                .register(meterRegistry);
+        this.checked = outcomeCounter(meterRegistry, "checked", "Stale orders checked upstream");
+        this.approved = outcomeCounter(meterRegistry, "approved", "Stale orders found paid and approved");
+        this.errors = outcomeCounter(meterRegistry, "errors", "Stale order checks that failed");
+        this.skipped = outcomeCounter(meterRegistry, "skipped", "Stale orders skipped while backing off");
+        Gauge.builder("ipsim.reconciler.backlog", backlog, AtomicLong::get)
+                .description("Stale PENDING transactions seen by the last run")
+                .register(meterRegistry);
+        Gauge.builder("ipsim.reconciler.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest stale PENDING transaction")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${ipsim.reconciler.initial-delay-ms:30000}",
+            fixedDelayString = "${ipsim.reconciler.interval-ms:60000}")
+    public void reconcile() {
+        runTimer.record(this::reconcileOnce);
+    }
+
+    void reconcileOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(staleAfter);
+
+        LocalDateTime afterTimestamp = null;
+        UUID afterId = null;
+        LocalDateTime oldest = null;
+        long seen = 0;
+        int checkedThisRun = 0;
+
+        while (checkedThisRun < maxPerRun) {
+            List<PendingTransactionRef> page = transactionRepository.findStale(
+                    TransactionStatus.PENDING, cutoff, afterTimestamp, afterId, Limit.of(batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            if (oldest == null) {
+                oldest = page.get(0).timestamp();
+            }
+            seen += page.size();
+            PendingTransactionRef last = page.get(page.size() - 1);
+            afterTimestamp = last.timestamp();
+            afterId = last.id();
+
+            long nowNanos = System.nanoTime();
+            List<PendingTransactionRef> due = page.stream()
+                    .filter(ref -> isDue(ref.orderNsu(), nowNanos))
+                    .limit(maxPerRun - checkedThisRun)
+                    .toList();
+            skipped.increment(page.size() - due.size());
+
+            boolean upstreamUnavailable = checkAndApply(due);
+            checkedThisRun += due.size();
+
+            if (upstreamUnavailable) {
+                log.warn("Reconciliation paused: InfinitePay is unavailable");
+                break;
+            }
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+
+        backlog.set(seen);
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, now).toSeconds());
+        if (checkedThisRun > 0) {
+            log.info("Reconciliation run checked {} stale PENDING transaction(s), {} seen", checkedThisRun, seen);
+        }
+    }
+
+    /**
+     * Checks a page of orders upstream and approves the paid ones
+     *
+     * @return true if the run should stop because InfinitePay is unavailable
+     */
+    private boolean checkAndApply(List<PendingTransactionRef> due) {
+        if (due.isEmpty()) {
+            return false;
+        }
+
+        List<CheckResult> results = Flux.fromIterable(due)
+                // Rate limit: start at most ratePerSecond checks per second
+                .delayElements(permitInterval)
+                .flatMap(ref -> paymentStatusCheckCoalescer
+                        .check(ref.orderNsu(), ref.infinitePaySlug(), ref.infinitePayTransactionNsu())
+                        .map(response -> new CheckResult(ref, response, null))
+                        .onErrorResume(e -> Mono.just(new CheckResult(ref, null, e))), parallelism)
+                .takeUntil(result -> result.error() instanceof UpstreamUnavailableException)
+                .collectList()
+                .block();
+
+        boolean upstreamUnavailable = false;
+        List<CheckResult> paid = new ArrayList<>();
+        for (CheckResult result : results) {
+            if (result.error() instanceof UpstreamUnavailableException) {
+                // Not checked at all, no backoff
+                upstreamUnavailable = true;
+            } else if (result.error() != null) {
+                log.warn("Status check failed for order: {}", result.ref().orderNsu(), result.error());
+                errors.increment();
+                backOff(result.ref().orderNsu());
+            } else if (Boolean.TRUE.equals(result.response().getPaid())) {
+                checked.increment();
+                paid.add(result);
+            } else {
+                checked.increment();
+                backOff(result.ref().orderNsu());
+            }
+        }
+
+        if (!paid.isEmpty()) {
+            approve(paid);
+        }
+        return upstreamUnavailable;
+    }
+
+    private void approve(List<CheckResult> paid) {
+        Map<String, PaymentStatusCheckResponse> byOrder = paid.stream()
+                .collect(Collectors.toMap(r -> r.ref().orderNsu(), CheckResult::response));
+
+        List<TransactionStatusChangedEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<TransactionStatusChangedEvent> changed = new ArrayList<>();
+            for (Transaction transaction : transactionRepository.findByOrderNsuIn(byOrder.keySet())) {
+                // A webhook may have won the race since the scan
+                if (transaction.getStatus() != TransactionStatus.PENDING) {
+                    continue;
+                }
+                PaymentStatusCheckResponse response = byOrder.get(transaction.getOrderNsu());
+                int previousInstallments = transaction.getInstallments();
+                transaction.setStatus(TransactionStatus.APPROVED);
+                transaction.setTimestamp(now);
+                if (response.getInstallments() != null) {
+                    transaction.setInstallments(response.getInstallments());
+                }
+                changed.add(TransactionStatusChangedEvent.of(transactionRepository.save(transaction),
+                        TransactionStatus.PENDING, previousInstallments));
+            }
+            return changed;
+        });
+
+        // Published after commit: SSE subscribers and the hot cache only see persisted state
+        for (TransactionStatusChangedEvent event : events) {
+            eventPublisher.publishEvent(event);
+            log.info("Payment confirmed by reconciliation. Order: {}", event.orderNsu());
+        }
+        approved.increment(events.size());
+        byOrder.keySet().forEach(backoffs::invalidate);
+    }
+
+    private boolean isDue(String orderNsu, long nowNanos) {
+        Backoff backoff = backoffs.getIfPresent(orderNsu);
+        return backoff == null || nowNanos - backoff.nextAttemptNanos() >= 0;
+    }
+
+    /**
+     * Doubles the wait before the next check of this order, up to the max
+     */
+    private void backOff(String orderNsu) {
+        long nowNanos = System.nanoTime();
+        backoffs.asMap().compute(orderNsu, (key, previous) -> {
+            int attempts = previous == null ? 1 : previous.attempts() + 1;
+            // initial * 2^(attempts - 1), without overflowing the shift
+            long delay = attempts - 1 < Long.numberOfLeadingZeros(initialBackoffNanos) - 1
+                    ? Math.min(maxBackoffNanos, initialBackoffNanos << (attempts - 1))
+                    : maxBackoffNanos;
+            return new Backoff(attempts, nowNanos + delay);
+        });
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String name, String description) {
+        return Counter.builder("ipsim.reconciler." + name)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private record Backoff(int attempts, long nextAttemptNanos) {
+    }
+
+    private record CheckResult(PendingTransactionRef ref, PaymentStatusCheckResponse response, Throwable error) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.cloudwalk.ipsim.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, monotonic, node-aware order NSU generator (Snowflake style)
+ *
+ * Format: ORD-{epochSeconds}-{8 hex chars}
+ * Example: ORD-1708234567-3e80a001
+ *
+ * The 32-bit hex suffix packs, from most to least significant:
+ * - 10 bits: millisecond within the second (0-999)
+ * - 10 bits: node id (0-1023), unique per running instance
+ * - 12 bits: sequence within the millisecond (0-4095)
+ *
+ * IDs are fixed width and ordered by time, so they sort lexicographically
+ * in creation order and new rows land at the end of the orderNsu index.
+ *
+ * State is a single AtomicLong holding (millis << 12 | sequence), advanced
+ * with a CAS loop: no locks and no SecureRandom. If the clock moves
+ * backwards the generator keeps counting from the last value, and after
+ * 4096 IDs in one millisecond it borrows the next millisecond, so IDs from
+ * one node never repeat and never go backwards.
+ */
+public class SnowflakeOrderNsuGenerator implements OrderNsuGenerator {
+
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+
+    static final int SEQUENCE_BITS = 12;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int MILLIS_SHIFT = SEQUENCE_BITS + 10;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String PREFIX = "ORD-";
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param nodeId Id of this instance, 0 to {@value #MAX_NODE_ID}
+     */
+    public SnowflakeOrderNsuGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeOrderNsuGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << NODE_SHIFT;
+        this.clock = clock;
+    }
+
+    @Override
+    public String next() {
+        return format(nextId());
+    }
+
+    /**
+     * Next raw (millis << 12 | sequence) value, strictly increasing
+     */
+    long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() << SEQUENCE_BITS;
+            // Same (or earlier) millisecond: bump the sequence, overflowing into the next millisecond
+            long next = now > current ? now : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    String format(long id) {
+        long millis = id >>> SEQUENCE_BITS;
+        long sequence = id & SEQUENCE_MASK;
+        long suffix = (millis % 1000) << MILLIS_SHIFT | nodeBits | sequence;
+        String seconds = Long.toString(millis / 1000);
+
+        char[] chars = new char[PREFIX.length() + seconds.length() + 1 + 8];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        seconds.getChars(0, seconds.length(), chars, PREFIX.length());
+        int pos = PREFIX.length() + seconds.length();
+        chars[pos] = '-';
+        for (int i = 8; i > 0; i--) {
+            chars[pos + i] = HEX[(int) (suffix & 0xF)];
+            suffix >>>= 4;
+        }
+        return new String(chars);
+    }
+}
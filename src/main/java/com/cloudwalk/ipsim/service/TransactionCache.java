@@ -0,0 +1,135 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Hot cache of orderNsu -> transaction snapshot
+ *
+ * Frontend lookups and duplicate webhooks keep hitting the same few orders.
+ * This cache answers them without a database round-trip.
+ *
+ * Consistency rules:
+ * - Write-through: every persisted status change (published as a
+ *   {@link TransactionStatusChangedEvent} right after the save) replaces
+ *   the cached entry.
+ * - A terminal snapshot is never replaced by a non-terminal one, so a slow
+ *   read-through load racing with a webhook cannot resurrect PENDING.
+ * - PENDING and PENDING_CREATE entries live only a few seconds; terminal
+ *   entries, which can no longer change, live much longer.
+ *
+ * Hit, miss and eviction counts are published as cache.* metrics with
+ * tag cache=transactions.orderNsu.
+ */
+@Service
+public class TransactionCache {
+
+    static final String CACHE_NAME = "transactions.orderNsu";
+
+    private final Cache<String, TransactionResponseDTO> cache;
+
+    public TransactionCache(
+            @Value("${ipsim.cache.order-nsu.max-size:10000}") long maxSize,
+            @Value("${ipsim.cache.order-nsu.pending-ttl:5s}") Duration pendingTtl,
+            @Value("${ipsim.cache.order-nsu.terminal-ttl:10m}") Duration terminalTtl,
+            MeterRegistry meterRegistry) {
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new StatusAwareExpiry(pendingTtl.toNanos(), terminalTtl.toNanos()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached snapshot without touching the database
+     *
+     * @param orderNsu Your internal order identifier
+     * @return Snapshot if cached
+     */
+    public Optional<TransactionResponseDTO> getIfPresent(String orderNsu) {
+        return Optional.ofNullable(cache.getIfPresent(orderNsu));
+    }
+
+    /**
+     * Returns the cached snapshot, loading it on a miss
+     *
+     * Concurrent misses for the same order share a single load. Orders
+     * that do not exist are not cached.
+     *
+     * @param orderNsu Your internal order identifier
+     * @param loader Database lookup used on a miss
+     * @return Snapshot if the order exists
+     */
+    public Optional<TransactionResponseDTO> get(String orderNsu,
+                                                Function<String, Optional<TransactionResponseDTO>> loader) {
+        return Optional.ofNullable(cache.get(orderNsu, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Write-through update for every persisted status change
+     */
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        if (event.orderNsu() == null) {
+            return;
+        }
+
+        TransactionResponseDTO snapshot = new TransactionResponseDTO(
+                event.transactionId(),
+                event.amount(),
+                event.netAmount(),
+                event.status(),
+                event.timestamp(),
+                event.createdAt(),
+                "",
+                event.checkoutUrl(),
+                event.orderNsu(),
+                event.receiptUrl());
+
+        cache.asMap().merge(event.orderNsu(), snapshot,
+                (current, incoming) -> isTerminal(current) && !isTerminal(incoming) ? current : incoming);
+    }
+
+    private static boolean isTerminal(TransactionResponseDTO snapshot) {
+        return snapshot.getStatus().isTerminal();
+    }
+
+    /**
+     * Short TTL while the order can still change, long TTL once it cannot
+     */
+    private record StatusAwareExpiry(long pendingTtlNanos, long terminalTtlNanos)
+            implements Expiry<String, TransactionResponseDTO> {
+
+        @Override
+        public long expireAfterCreate(String key, TransactionResponseDTO value, long currentTime) {
+            return isTerminal(value) ? terminalTtlNanos : pendingTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TransactionResponseDTO value,
+                                      long currentTime, long currentDuration) {
+            return isTerminal(value) ? terminalTtlNanos : pendingTtlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, TransactionResponseDTO value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business metrics derived from {@link TransactionStatusChangedEvent}
+ *
+ * Every meter is registered up front and looked up by enum ordinal, so
+ * recording an event never builds tags or allocates a meter.
+ *
+ * Metrics:
+ * - ipsim.transactions.status.changes: transactions entering a status,
+ *   tagged status and type
+ * - ipsim.transactions.settlement: creation -> APPROVED, for payments
+ *   approved from PENDING (or PENDING_CREATE, when the webhook beats the
+ *   checkout outbox commit)
+ * - ipsim.transactions.pending: transactions currently PENDING, read from
+ *   the dashboard aggregates (no query per scrape)
+ */
+@Component
+public class TransactionMetrics {
+
+    private final Counter[][] statusChanges;
+    private final Timer settlement;
+
+    public TransactionMetrics(DashboardAggregationService dashboardAggregationService, MeterRegistry meterRegistry) {
+        TransactionStatus[] statuses = TransactionStatus.values();
+        TransactionType[] types = TransactionType.values();
+        this.statusChanges = new Counter[statuses.length][types.length];
+        for (TransactionStatus status : statuses) {
+            for (TransactionType type : types) {
+                statusChanges[status.ordinal()][type.ordinal()] = Counter.builder("ipsim.transactions.status.changes")
+                        .description("Transactions entering a status")
+                        .tags("status", status.name(), "type", type.name())
+                        .register(meterRegistry);
+            }
+        }
+
+        this.settlement = Timer.builder("ipsim.transactions.settlement")
+                .description("Time from payment creation to approval")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        Gauge.builder("ipsim.transactions.pending", dashboardAggregationService,
+                        service -> service.count(TransactionStatus.PENDING))
+                .description("Transactions waiting for payment")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        statusChanges[event.status().ordinal()][event.type().ordinal()].increment();
+
+        if (event.status() == TransactionStatus.APPROVED && event.previousStatus() != null
+                && !event.previousStatus().isTerminal() && event.createdAt() != null && event.timestamp() != null) {
+            settlement.record(event.createdAt().until(event.timestamp(), ChronoUnit.MICROS), TimeUnit.MICROSECONDS);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionFilter;
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Read side for transaction listing
+ *
+ * Memory use is bounded by the page size (listing) or the JDBC fetch size
+ * (export), never by the size of the transactions table.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionQueryService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Export output is flushed to the client every this many rows
+     */
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * One page of transactions plus the cursor for the next one
+     *
+     * @param items Transactions on this page, newest first
+     * @param nextCursor Opaque cursor for the next page, null on the last page
+     */
+    public record TransactionPage(List<TransactionResponseDTO> items, String nextCursor) {
+    }
+
+    /**
+     * Returns one keyset page of transactions, newest first
+     *
+     * Ordered by creation time, so paging is stable while transactions
+     * change status.
+     *
+     * @param filter Optional filters
+     * @param cursor Cursor returned with the previous page, null for the first page
+     * @param limit Page size (1 to {@value #MAX_PAGE_SIZE})
+     * @return Page of transactions
+     * @throws IllegalArgumentException if the limit or cursor is invalid
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage findPage(TransactionFilter filter, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+
+        // Fetch one extra row to know whether there is a next page
+        List<TransactionResponseDTO> rows = after == null
+                ? transactionRepository.findFirstPage(
+                        filter.status(), filter.type(), filter.from(), filter.to(), Limit.of(limit + 1))
+                : transactionRepository.findPageAfter(
+                        filter.status(), filter.type(), filter.from(), filter.to(),
+                        after.createdAt(), after.id(), Limit.of(limit + 1));
+
+        if (rows.size() <= limit) {
+            return new TransactionPage(rows, null);
+        }
+
+        List<TransactionResponseDTO> page = rows.subList(0, limit);
+        TransactionResponseDTO last = page.get(limit - 1);
+        return new TransactionPage(page, new PageCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    /**
+     * Writes every matching transaction as newline-delimited JSON
+     *
+     * Rows are streamed from the database with a fixed fetch size and
+     * written one by one, so memory stays flat regardless of table size.
+     *
+     * @param filter Optional filters
+     * @param out Destination stream (left open)
+     * @return Number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(TransactionFilter filter, OutputStream out) throws IOException {
+        long written = 0;
+
+        try (Stream<TransactionResponseDTO> rows = transactionRepository.streamForExport(
+                filter.status(), filter.type(), filter.from(), filter.to());
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<TransactionResponseDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+
+                if (++written % EXPORT_FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+
+        return written;
+    }
+
+    /**
+     * Position of the last row of a page: (createdAt, id)
+     *
+     * Encoded as URL-safe Base64 so clients treat it as opaque.
+     */
+    private record PageCursor(LocalDateTime createdAt, UUID id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new PageCursor(
+                        LocalDateTime.parse(raw.substring(0, separator)),
+                        UUID.fromString(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
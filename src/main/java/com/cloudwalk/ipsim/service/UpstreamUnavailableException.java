@@ -0,0 +1,23 @@
+package com.cloudwalk.ipsim.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown without calling InfinitePay when the circuit breaker is open or
+ * the bulkhead is full
+ *
+ * Mapped to 503 Service Unavailable with a Retry-After header.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
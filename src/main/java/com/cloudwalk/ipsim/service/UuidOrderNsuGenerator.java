@@ -0,0 +1,20 @@
+package com.cloudwalk.ipsim.service;
+
+import java.util.UUID;
+
+/**
+ * Original order NSU format: ORD-{epochSeconds}-{6 hex chars of a random UUID}
+ *
+ * Only 24 random bits per second, so collisions on the unique orderNsu
+ * column become likely at a few thousand orders per second. Still the
+ * default (ipsim.order-nsu.generator=uuid) because it needs no node id.
+ */
+public class UuidOrderNsuGenerator implements OrderNsuGenerator {
+
+    @Override
+    public String next() {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String uuidPrefix = UUID.randomUUID().toString().substring(0, 6);
+        return "ORD-" + timestamp + "-" + uuidPrefix;
+    }
+}
@@ -0,0 +1,89 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayWebhookPayload;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory idempotency guard for InfinitePay webhooks
+ *
+ * InfinitePay retries deliveries, and retries can arrive concurrently.
+ * Each webhook is identified by its transaction_nsu (falling back to
+ * order_nsu when absent) and claimed with a single atomic putIfAbsent, so
+ * exactly one of N concurrent deliveries wins and the others are rejected
+ * without touching the database or the webhook queue.
+ *
+ * Memory is bounded by a maximum number of keys and each key expires a
+ * fixed time after it was claimed. Anything that slips past this layer
+ * (after a restart or an eviction) is still stopped by the APPROVED check
+ * in {@link WebhookIngestionService} and by the unique constraint on
+ * transactions.infinite_pay_transaction_nsu.
+ */
+@Service
+public class WebhookIdempotencyGuard {
+
+    static final String CACHE_NAME = "webhooks.idempotency";
+
+    private final ConcurrentMap<String, Boolean> claimed;
+    private final Counter duplicates;
+
+    public WebhookIdempotencyGuard(
+            @Value("${ipsim.webhook.idempotency.max-size:100000}") long maxSize,
+            @Value("${ipsim.webhook.idempotency.ttl:24h}") Duration ttl,
+            MeterRegistry meterRegistry) {
+
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.claimed = cache.asMap();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.duplicates = Counter.builder("ipsim.webhook.duplicates")
+                .description("Duplicate webhooks rejected by the idempotency guard")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims a webhook for processing
+     *
+     * @param payload Validated webhook payload (order_nsu is required)
+     * @return true for the first delivery, false for a duplicate
+     */
+    public boolean tryAcquire(InfinitePayWebhookPayload payload) {
+        boolean first = claimed.putIfAbsent(keyOf(payload), Boolean.TRUE) == null;
+        if (!first) {
+            duplicates.increment();
+        }
+        return first;
+    }
+
+    /**
+     * Gives a claim back so the next delivery is processed again
+     *
+     * Used when the webhook could not be queued and InfinitePay will retry,
+     * and when a queued webhook could not be applied (dead-lettered, or its
+     * order is not visible yet) so a redelivery is not taken for a duplicate.
+     *
+     * @param payload Payload previously passed to {@link #tryAcquire}
+     */
+    public void release(InfinitePayWebhookPayload payload) {
+        claimed.remove(keyOf(payload));
+    }
+
+    static String keyOf(InfinitePayWebhookPayload payload) {
+        String transactionNsu = payload.getTransactionNsu();
+        return transactionNsu != null && !transactionNsu.isEmpty()
+                ? "txn:" + transactionNsu
+                : "order:" + payload.getOrderNsu();
+    }
+}
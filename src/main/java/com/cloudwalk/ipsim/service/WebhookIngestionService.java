@@ -0,0 +1,404 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.infinitepay.InfinitePayWebhookPayload;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous webhook ingestion
+ *
+ * The HTTP thread only validates and appends the payload to a durable
+ * {@link WebhookJournal}, then acknowledges. A single consumer thread drains
+ * the journal in batches:
+ * 1. Coalesce duplicate events for the same order_nsu (last one wins)
+ * 2. Load all affected transactions with one query
+ * 3. Apply the updates and persist them with one saveAll in one transaction
+ * 4. Publish status events, then commit the journal offset
+ *
+ * If a batch fails it is retried item by item; items that still fail are
+ * moved to the dead-letter file. If every item fails (e.g. database down)
+ * nothing is committed and the batch is retried after a back-off.
+ *
+ * A webhook can name an order that is not visible yet (it beat the commit
+ * of the order's checkout link). It is appended to the journal again and
+ * retried with the following batches, at least {@code retry-backoff}
+ * apart, until the order shows up or {@code unknown-order-ttl} has passed;
+ * then it is dead-lettered.
+ *
+ * The HTTP thread already answered 200 and claimed the webhook in the
+ * {@link WebhookIdempotencyGuard}. For dead-lettered and unknown-order
+ * webhooks the claim is released, so a redelivery by InfinitePay is
+ * accepted again instead of being rejected as a duplicate.
+ *
+ * Metrics:
+ * - ipsim.webhook.ack: time to durably accept a webhook
+ * - ipsim.webhook.queue.depth: accepted webhooks not yet applied
+ * - ipsim.webhook.batch.size: webhooks drained per batch
+ * - ipsim.webhook.batch.apply: time to apply and commit a drained batch
+ * - ipsim.webhook.dead.letters: webhooks that could not be applied
+ */
+@Slf4j
+@Service
+public class WebhookIngestionService implements SmartLifecycle {
+
+    private final WebhookJournal journal;
+    private final ObjectMapper objectMapper;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WebhookIdempotencyGuard webhookIdempotencyGuard;
+
+    private final int batchSize;
+    private final long pollIntervalNanos;
+    private final long retryBackoffNanos;
+    private final long unknownOrderTtlNanos;
+
+    // order_nsu -> System.nanoTime() of its first webhook, while the order is unknown (consumer thread only)
+    private final Map<String, Long> unknownSince = new HashMap<>();
+
+    private final AtomicLong depth = new AtomicLong();
+    private final Timer ackTimer;
+    private final DistributionSummary batchSizes;
+    private final Timer applyTimer;
+    private final Counter deadLetters;
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    /**
+     * Result of processing one batch
+     *
+     * @param committable false if nothing could be applied and the batch must be read again
+     * @param requeued Webhooks appended to the journal again (order not visible yet)
+     */
+    private record Outcome(boolean committable, int requeued) {
+    }
+
+    public WebhookIngestionService(
+            @Value("${ipsim.webhook.queue.dir:./data/webhooks}") Path directory,
+            @Value("${ipsim.webhook.queue.fsync:true}") boolean fsync,
+            @Value("${ipsim.webhook.queue.compact-threshold-bytes:67108864}") long compactThresholdBytes,
+            @Value("${ipsim.webhook.queue.batch-size:500}") int batchSize,
+            @Value("${ipsim.webhook.queue.poll-interval:200ms}") Duration pollInterval,
+            @Value("${ipsim.webhook.queue.retry-backoff:5s}") Duration retryBackoff,
+            @Value("${ipsim.webhook.queue.unknown-order-ttl:10m}") Duration unknownOrderTtl,
+            ObjectMapper objectMapper,
+            TransactionRepository transactionRepository,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            WebhookIdempotencyGuard webhookIdempotencyGuard,
+            MeterRegistry meterRegistry) throws IOException {
+
+        this.journal = new WebhookJournal(directory, fsync, compactThresholdBytes);
+        this.objectMapper = objectMapper;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.webhookIdempotencyGuard = webhookIdempotencyGuard;
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.unknownOrderTtlNanos = unknownOrderTtl.toNanos();
+
+        this.depth.set(journal.countPending());
+        this.ackTimer = Timer.builder("ipsim.webhook.ack")
+                .description("Time to durably accept an InfinitePay webhook")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("ipsim.webhook.batch.size")
+                .description("Webhooks applied per batch")
+                .register(meterRegistry);
+        this.applyTimer = Timer.builder("ipsim.webhook.batch.apply")
+                .description("Time to apply a batch of webhooks to the database")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("ipsim.webhook.dead.letters")
+                .description("Webhooks that could not be applied")
+                .register(meterRegistry);
+        Gauge.builder("ipsim.webhook.queue.depth", depth, AtomicLong::get)
+                .description("Accepted webhooks not yet applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Durably queues a webhook for asynchronous processing
+     *
+     * Returns once the payload is on disk; the transaction update happens
+     * later on the consumer thread.
+     *
+     * @param payload Validated webhook payload
+     * @throws IOException if the payload could not be written
+     */
+    public void enqueue(InfinitePayWebhookPayload payload) throws IOException {
+        long start = System.nanoTime();
+
+        journal.append(objectMapper.writeValueAsBytes(payload));
+        depth.incrementAndGet();
+        LockSupport.unpark(consumer);
+
+        ackTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Webhooks accepted but not yet applied
+     */
+    public long queueDepth() {
+        return depth.get();
+    }
+
+    // =====================================================
+    // Consumer
+    // =====================================================
+
+    private void consumeLoop() {
+        while (running) {
+            try {
+                WebhookJournal.Batch batch = journal.readBatch(batchSize);
+                if (batch.records().isEmpty()) {
+                    LockSupport.parkNanos(pollIntervalNanos);
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                Outcome outcome = process(batch.records());
+                if (outcome.committable()) {
+                    journal.commit(batch.endOffset());
+                    depth.addAndGet(outcome.requeued() - batch.records().size());
+                    batchSizes.record(batch.records().size());
+                    applyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (outcome.requeued() == batch.records().size()) {
+                        // Only orders that are not visible yet: do not read them again right away
+                        LockSupport.parkNanos(retryBackoffNanos);
+                    }
+                } else {
+                    LockSupport.parkNanos(retryBackoffNanos);
+                }
+            } catch (Exception e) {
+                log.error("Webhook consumer failed, retrying", e);
+                LockSupport.parkNanos(retryBackoffNanos);
+            }
+        }
+    }
+
+    private Outcome process(List<byte[]> records) throws IOException {
+        Map<String, InfinitePayWebhookPayload> latestByOrder = new LinkedHashMap<>();
+        Map<String, byte[]> rawByOrder = new LinkedHashMap<>();
+
+        for (byte[] record : records) {
+            try {
+                InfinitePayWebhookPayload payload = objectMapper.readValue(record, InfinitePayWebhookPayload.class);
+                latestByOrder.put(payload.getOrderNsu(), payload);
+                rawByOrder.put(payload.getOrderNsu(), record);
+            } catch (IOException e) {
+                log.error("Unreadable webhook record, moving to dead letters", e);
+                deadLetter(record);
+            }
+        }
+
+        if (latestByOrder.isEmpty()) {
+            return new Outcome(true, 0);
+        }
+
+        Set<String> unknown = new HashSet<>();
+        try {
+            unknown.addAll(applyBatch(latestByOrder));
+            return new Outcome(true, requeueUnknown(unknown, latestByOrder, rawByOrder));
+        } catch (RuntimeException batchFailure) {
+            log.warn("Webhook batch of {} failed, retrying item by item", latestByOrder.size(), batchFailure);
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, InfinitePayWebhookPayload> entry : latestByOrder.entrySet()) {
+            try {
+                unknown.addAll(applyBatch(Map.of(entry.getKey(), entry.getValue())));
+            } catch (RuntimeException e) {
+                log.error("Failed to apply webhook for order: {}", entry.getKey(), e);
+                failed.add(entry.getKey());
+            }
+        }
+
+        if (failed.size() == latestByOrder.size()) {
+            // Nothing went through: most likely the database is unavailable
+            return new Outcome(false, 0);
+        }
+
+        // Partial failure: keep the bad items aside and move on
+        failed.forEach(orderNsu -> deadLetter(latestByOrder.get(orderNsu), rawByOrder.get(orderNsu)));
+        return new Outcome(true, requeueUnknown(unknown, latestByOrder, rawByOrder));
+    }
+
+    /**
+     * Appends the webhooks of orders not visible yet to the journal again,
+     * dead-letters those unknown for longer than {@code unknown-order-ttl}
+     *
+     * @return Number of webhooks appended again
+     */
+    private int requeueUnknown(Set<String> unknown, Map<String, InfinitePayWebhookPayload> latestByOrder,
+                               Map<String, byte[]> rawByOrder) throws IOException {
+        // Orders of this batch that were found are no longer waited for
+        latestByOrder.keySet().forEach(orderNsu -> {
+            if (!unknown.contains(orderNsu)) {
+                unknownSince.remove(orderNsu);
+            }
+        });
+        if (unknown.isEmpty()) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        int requeued = 0;
+        for (String orderNsu : unknown) {
+            InfinitePayWebhookPayload payload = latestByOrder.get(orderNsu);
+            long since = unknownSince.computeIfAbsent(orderNsu, key -> now);
+            if (now - since >= unknownOrderTtlNanos) {
+                log.error("Webhook for unknown order {} could not be applied, moving to dead letters", orderNsu);
+                unknownSince.remove(orderNsu);
+                deadLetter(payload, rawByOrder.get(orderNsu));
+            } else {
+                journal.append(rawByOrder.get(orderNsu));
+                // A redelivery by InfinitePay meanwhile is accepted again
+                webhookIdempotencyGuard.release(payload);
+                requeued++;
+            }
+        }
+        if (requeued > 0) {
+            log.warn("{} webhook(s) reference orders not visible yet, retrying later", requeued);
+        }
+        return requeued;
+    }
+
+    /**
+     * Applies the webhooks of one batch in one transaction
+     *
+     * @return Order NSUs of the webhooks whose order was not found
+     */
+    private Set<String> applyBatch(Map<String, InfinitePayWebhookPayload> latestByOrder) {
+        Set<String> unknown = new HashSet<>(latestByOrder.keySet());
+        List<TransactionStatusChangedEvent> events = transactionTemplate.execute(status -> {
+            List<Transaction> transactions = transactionRepository.findByOrderNsuIn(latestByOrder.keySet());
+            transactions.forEach(transaction -> unknown.remove(transaction.getOrderNsu()));
+
+            List<Transaction> changed = new ArrayList<>(transactions.size());
+            List<TransactionStatus> previousStatuses = new ArrayList<>(transactions.size());
+            List<Integer> previousInstallments = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                // Check if already processed
+                if (transaction.getStatus() == TransactionStatus.APPROVED) {
+                    log.info("Transaction already approved (duplicate webhook). Order: {}",
+                            transaction.getOrderNsu());
+                    continue;
+                }
+                previousStatuses.add(transaction.getStatus());
+                previousInstallments.add(transaction.getInstallments());
+                apply(transaction, latestByOrder.get(transaction.getOrderNsu()));
+                changed.add(transaction);
+            }
+
+            List<Transaction> saved = transactionRepository.saveAll(changed);
+
+            List<TransactionStatusChangedEvent> result = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                result.add(TransactionStatusChangedEvent.of(saved.get(i), previousStatuses.get(i),
+                        previousInstallments.get(i)));
+            }
+            return result;
+        });
+
+        // Published after commit: SSE subscribers and the hot cache only see persisted state
+        for (TransactionStatusChangedEvent event : events) {
+            eventPublisher.publishEvent(event);
+            log.info("Transaction updated successfully. Order: {}, Status: {}", event.orderNsu(), event.status());
+        }
+        return unknown;
+    }
+
+    /**
+     * Update transaction with webhook data
+     *
+     * Note: InfinitePay handles the fee calculation internally
+     * The webhook amount is what the merchant receives
+     */
+    private void apply(Transaction transaction, InfinitePayWebhookPayload payload) {
+        transaction.setStatus(TransactionStatus.APPROVED);
+        transaction.setInfinitePaySlug(payload.getInvoiceSlug());
+        transaction.setInfinitePayTransactionNsu(payload.getTransactionNsu());
+        transaction.setReceiptUrl(payload.getReceiptUrl());
+        transaction.setInstallments(payload.getInstallments());
+        transaction.setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Dead-letters a readable webhook and releases its idempotency claim
+     */
+    private void deadLetter(InfinitePayWebhookPayload payload, byte[] record) {
+        deadLetter(record);
+        webhookIdempotencyGuard.release(payload);
+    }
+
+    private void deadLetter(byte[] record) {
+        try {
+            journal.deadLetter(record);
+            deadLetters.increment();
+        } catch (IOException e) {
+            log.error("Failed to write webhook dead letter", e);
+        }
+    }
+
+    // =====================================================
+    // Lifecycle
+    // =====================================================
+
+    @Override
+    public void start() {
+        running = true;
+        consumer = Thread.ofPlatform().name("webhook-consumer").daemon().start(this::consumeLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(10));
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close webhook journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
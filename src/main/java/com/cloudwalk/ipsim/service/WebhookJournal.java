@@ -0,0 +1,191 @@
+package com.cloudwalk.ipsim.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Durable, append-only queue of webhook payloads on local disk
+ *
+ * Files in the journal directory:
+ * - webhooks.log: one JSON document per line, appended by the HTTP threads
+ * - webhooks.offset: byte position up to which records have been applied
+ * - webhooks.dead: records that could not be applied (kept for inspection)
+ *
+ * There is a single consumer. It reads complete lines from the committed
+ * offset onwards and commits a new offset only after the records were
+ * persisted, so a crash replays at most the last unacknowledged batch.
+ * Once the consumer has caught up and the log exceeds the compaction
+ * threshold, the log is truncated back to zero.
+ */
+public class WebhookJournal implements Closeable {
+
+    static final String LOG_FILE = "webhooks.log";
+    static final String OFFSET_FILE = "webhooks.offset";
+    static final String DEAD_LETTER_FILE = "webhooks.dead";
+
+    private static final byte NEWLINE = '\n';
+    private static final int INITIAL_READ_BYTES = 256 * 1024;
+
+    private final FileChannel log;
+    private final Path offsetFile;
+    private final Path deadLetterFile;
+    private final boolean fsync;
+    private final long compactThresholdBytes;
+    private final Object appendLock = new Object();
+
+    private volatile long committedOffset;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BYTES);
+
+    /**
+     * Records read in one go, plus the offset to commit once they are applied
+     */
+    public record Batch(List<byte[]> records, long endOffset) {
+    }
+
+    /**
+     * Opens (or creates) the journal in the given directory
+     *
+     * @param directory Journal directory, created if missing
+     * @param fsync Force every append to disk before acknowledging it
+     * @param compactThresholdBytes Truncate the log once fully consumed and larger than this
+     */
+    public WebhookJournal(Path directory, boolean fsync, long compactThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.offsetFile = directory.resolve(OFFSET_FILE);
+        this.deadLetterFile = directory.resolve(DEAD_LETTER_FILE);
+        this.fsync = fsync;
+        this.compactThresholdBytes = compactThresholdBytes;
+
+        long stored = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0L;
+        // A crash between truncation and offset update leaves the offset past the end
+        this.committedOffset = stored <= log.size() ? stored : 0L;
+    }
+
+    /**
+     * Durably appends one record
+     *
+     * @param record JSON document without line breaks
+     */
+    public void append(byte[] record) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate(record.length + 1).put(record).put(NEWLINE).flip();
+        synchronized (appendLock) {
+            long position = log.size();
+            while (line.hasRemaining()) {
+                position += log.write(line, position);
+            }
+            if (fsync) {
+                log.force(false);
+            }
+        }
+    }
+
+    /**
+     * Reads up to {@code maxRecords} complete records after the committed offset
+     *
+     * Only called by the single consumer thread.
+     */
+    public Batch readBatch(int maxRecords) throws IOException {
+        long start = committedOffset;
+        List<byte[]> records = new ArrayList<>();
+
+        while (true) {
+            readBuffer.clear();
+            int read = log.read(readBuffer, start);
+            if (read <= 0) {
+                return new Batch(records, start);
+            }
+
+            byte[] bytes = readBuffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < read && records.size() < maxRecords; i++) {
+                if (bytes[i] == NEWLINE) {
+                    records.add(Arrays.copyOfRange(bytes, lineStart, i));
+                    lineStart = i + 1;
+                }
+            }
+
+            if (lineStart == 0 && read == readBuffer.capacity()) {
+                // A single record larger than the buffer: grow and retry
+                readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                continue;
+            }
+
+            // Anything after the last newline is an append still in progress
+            return new Batch(records, start + lineStart);
+        }
+    }
+
+    /**
+     * Marks everything before {@code offset} as applied
+     */
+    public void commit(long offset) throws IOException {
+        writeOffset(offset);
+        committedOffset = offset;
+
+        if (offset >= compactThresholdBytes) {
+            synchronized (appendLock) {
+                if (log.size() == offset) {
+                    log.truncate(0);
+                    writeOffset(0);
+                    committedOffset = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps a record that could not be applied, then skips it
+     */
+    public void deadLetter(byte[] record) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate(record.length + 1).put(record).put(NEWLINE).flip();
+        try (FileChannel channel = FileChannel.open(deadLetterFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        }
+    }
+
+    /**
+     * Counts records appended but not yet committed (used at startup)
+     */
+    public long countPending() throws IOException {
+        long count = 0;
+        long position = committedOffset;
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_READ_BYTES);
+        int read;
+        while ((read = log.read(buffer.clear(), position)) > 0) {
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == NEWLINE) {
+                    count++;
+                }
+            }
+            position += read;
+        }
+        return count;
+    }
+
+    private void writeOffset(long offset) throws IOException {
+        Path tmp = offsetFile.resolveSibling(OFFSET_FILE + ".tmp");
+        Files.writeString(tmp, Long.toString(offset), StandardCharsets.US_ASCII);
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
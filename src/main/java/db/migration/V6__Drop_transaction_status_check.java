@@ -0,0 +1,55 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops the CHECK constraint Hibernate put on transactions.status
+ *
+ * Databases created with ddl-auto=update (before Flyway, see V1) restrict
+ * status to the enum values of that time, which rejects PENDING_CREATE.
+ * The constraint has a generated name, so it is looked up in
+ * information_schema (same query on H2 and PostgreSQL) instead of being
+ * dropped by name from SQL. Schemas created by V1 have no such constraint
+ * and are left untouched.
+ */
+public class V6__Drop_transaction_status_check extends BaseJavaMigration {
+
+    private static final String FIND_STATUS_CHECKS = """
+            SELECT tc.constraint_name
+            FROM information_schema.table_constraints tc
+            JOIN information_schema.check_constraints cc
+              ON cc.constraint_schema = tc.constraint_schema
+             AND cc.constraint_name = tc.constraint_name
+            WHERE tc.constraint_type = 'CHECK'
+              AND tc.table_schema = CURRENT_SCHEMA
+              AND LOWER(tc.table_name) = 'transactions'
+              AND cc.check_clause LIKE '%''PENDING''%'
+            """;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+
+        List<String> names = new ArrayList<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(FIND_STATUS_CHECKS)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+
+        try (Statement st = connection.createStatement()) {
+            for (String name : names) {
+                st.execute("ALTER TABLE transactions DROP CONSTRAINT \"" + name.replace("\"", "\"\"") + "\"");
+            }
+        }
+    }
+}
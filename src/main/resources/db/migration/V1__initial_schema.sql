@@ -0,0 +1,24 @@
+-- Initial schema, as originally created by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+-- Plain SQL shared by H2 and PostgreSQL.
+
+CREATE TABLE IF NOT EXISTS cards (
+    id          UUID         NOT NULL,
+    pan         VARCHAR(255) NOT NULL,
+    holder_name VARCHAR(255) NOT NULL,
+    expiry_date VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_cards PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id           UUID          NOT NULL,
+    amount       NUMERIC(38, 2) NOT NULL,
+    net_amount   NUMERIC(38, 2),
+    type         VARCHAR(255)  NOT NULL,
+    installments INTEGER       NOT NULL,
+    status       VARCHAR(255)  NOT NULL,
+    timestamp    TIMESTAMP(6)  NOT NULL,
+    card_id      UUID          NOT NULL,
+    CONSTRAINT pk_transactions PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_card FOREIGN KEY (card_id) REFERENCES cards (id)
+);
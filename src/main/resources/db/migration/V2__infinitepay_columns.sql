@@ -0,0 +1,10 @@
+-- InfinitePay checkout integration fields.
+-- IF NOT EXISTS: databases upgraded by ddl-auto=update may already have them.
+
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS order_nsu VARCHAR(50);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS checkout_url VARCHAR(500);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS infinite_pay_slug VARCHAR(100);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS infinite_pay_transaction_nsu VARCHAR(100);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS receipt_url VARCHAR(500);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_transactions_order_nsu ON transactions (order_nsu);
@@ -0,0 +1,15 @@
+-- Secondary indexes for the hot queries on transactions.
+-- Checked by TransactionIndexPlanTest (EXPLAIN on a seeded table).
+
+-- Reconciler: PENDING transactions older than a cutoff, oldest first
+CREATE INDEX IF NOT EXISTS idx_transactions_status_timestamp ON transactions (status, timestamp);
+
+-- Listing and export: newest first, keyset on (timestamp, id)
+CREATE INDEX IF NOT EXISTS idx_transactions_timestamp_id ON transactions (timestamp DESC, id DESC);
+
+-- Webhook idempotency backstop: one InfinitePay payment approves one transaction
+CREATE UNIQUE INDEX IF NOT EXISTS uk_transactions_infinite_pay_transaction_nsu
+    ON transactions (infinite_pay_transaction_nsu);
+
+-- Transactions of a card (PostgreSQL does not index foreign keys by itself)
+CREATE INDEX IF NOT EXISTS idx_transactions_card_id ON transactions (card_id);
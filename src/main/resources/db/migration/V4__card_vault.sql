@@ -0,0 +1,14 @@
+-- Card vault: cards are identified by a keyed token of PAN + expiry and
+-- only the last 4 digits are kept. Existing rows cannot be re-keyed in SQL:
+-- they get a unique legacy token (never matched again) and lose their PAN.
+
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS token VARCHAR(64);
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS last4 VARCHAR(4);
+
+UPDATE cards SET token = 'legacy-' || CAST(id AS VARCHAR(36)), last4 = RIGHT(pan, 4) WHERE token IS NULL;
+
+ALTER TABLE cards ALTER COLUMN token SET NOT NULL;
+ALTER TABLE cards ALTER COLUMN last4 SET NOT NULL;
+ALTER TABLE cards DROP COLUMN pan;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cards_token ON cards (token);
@@ -0,0 +1,6 @@
+-- Creation time, used to bucket dashboard aggregates.
+-- "timestamp" is updated on every status change, created_at never is.
+
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS created_at TIMESTAMP(6) DEFAULT LOCALTIMESTAMP;
+UPDATE transactions SET created_at = timestamp;
+ALTER TABLE transactions ALTER COLUMN created_at SET NOT NULL;
@@ -0,0 +1,19 @@
+-- Checkout links still to be created at InfinitePay, one row per
+-- PENDING_CREATE transaction. Written in the same database transaction as
+-- the transaction row, drained by CheckoutOutboxService.
+
+CREATE TABLE IF NOT EXISTS checkout_outbox (
+    transaction_id  UUID          NOT NULL,
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    claim_token     UUID,
+    last_error      VARCHAR(500),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_checkout_outbox PRIMARY KEY (transaction_id),
+    CONSTRAINT fk_checkout_outbox_transaction FOREIGN KEY (transaction_id) REFERENCES transactions (id)
+);
+
+-- Relay poll: due entries, oldest first
+CREATE INDEX IF NOT EXISTS idx_checkout_outbox_next_attempt_at ON checkout_outbox (next_attempt_at);
+-- Relay claim: entries taken by one worker
+CREATE INDEX IF NOT EXISTS idx_checkout_outbox_claim_token ON checkout_outbox (claim_token);
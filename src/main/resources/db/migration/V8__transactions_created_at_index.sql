@@ -0,0 +1,8 @@
+-- Listing and export are ordered by creation time: "timestamp" moves on
+-- every status change, so a keyset cursor on it skips or repeats rows.
+-- Newest first, keyset on (created_at, id).
+
+CREATE INDEX IF NOT EXISTS idx_transactions_created_at_id ON transactions (created_at DESC, id DESC);
+
+-- Only served the listing; the reconciler scan uses idx_transactions_status_timestamp
+DROP INDEX IF EXISTS idx_transactions_timestamp_id;
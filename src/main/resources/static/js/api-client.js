@@ -19,8 +19,8 @@ export async function submitPayment(payload) {
     return await response.json();
 }
 /**
- * Poll a single transaction by its internal order NSU.
- * Used to detect when the webhook has flipped status to APPROVED.
+ * Look up a single transaction by its internal order NSU.
+ * To wait for the webhook, use subscribeToPaymentStatus instead.
  */
 export async function checkPaymentStatus(orderNsu) {
     const response = await fetch(`/api/transactions/order/${orderNsu}`);
@@ -30,12 +30,44 @@ export async function checkPaymentStatus(orderNsu) {
     return await response.json();
 }
 /**
- * Fetch all transactions (for the dashboard).
+ * Subscribe to status changes of a single order via Server-Sent Events.
+ * The server pushes the current state right away and then every transition
+ * (e.g. when the webhook flips status to APPROVED). Call close() on the
+ * returned EventSource once a terminal status arrives.
  */
-export async function fetchAllTransactions() {
-    const response = await fetch('/api/transactions');
+export function subscribeToPaymentStatus(orderNsu, onUpdate, onError) {
+    const source = new EventSource(`/api/transactions/order/${encodeURIComponent(orderNsu)}/events`);
+    source.addEventListener('status', (event) => {
+        onUpdate(JSON.parse(event.data));
+    });
+    source.onerror = onError;
+    return source;
+}
+/**
+ * Fetch the most recent transactions, newest first (for the dashboard).
+ * The API is keyset-paginated; only the first page is requested here.
+ */
+export async function fetchRecentTransactions(limit = 50) {
+    const response = await fetch(`/api/transactions?limit=${limit}`);
     if (!response.ok) {
         throw new Error(`Failed to load transactions (${response.status})`);
     }
     return await response.json();
 }
+/**
+ * Fetch the dashboard totals, aggregated on the server.
+ * Optional from/to bound the creation time (ISO-8601).
+ */
+export async function fetchDashboardSummary(from, to) {
+    const params = new URLSearchParams();
+    if (from)
+        params.set('from', from);
+    if (to)
+        params.set('to', to);
+    const query = params.toString();
+    const response = await fetch(`/api/dashboard/summary${query ? '?' + query : ''}`);
+    if (!response.ok) {
+        throw new Error(`Failed to load dashboard summary (${response.status})`);
+    }
+    return await response.json();
+}
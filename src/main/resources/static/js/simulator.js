@@ -1,9 +1,9 @@
-import { submitPayment, checkPaymentStatus } from './api-client.js';
-// ── Polling state ──────────────────────────────────────────────────
-let pollingInterval = null;
-let pollingTimeout = null;
-const POLL_INTERVAL_MS = 3000;
-const POLL_TIMEOUT_MS = 600000; // 10 minutes
+import { submitPayment, subscribeToPaymentStatus } from './api-client.js';
+// ── Status subscription state ──────────────────────────────────────
+let statusSource = null;
+let statusTimeout = null;
+let openedCheckoutUrl = null;
+const STATUS_TIMEOUT_MS = 600000; // 10 minutes
 // ── DOM Ready ──────────────────────────────────────────────────────
 document.addEventListener('DOMContentLoaded', () => {
     const executeBtn = document.getElementById('execute-btn');
@@ -54,12 +54,15 @@ async function executeTransaction() {
         const displayData = { ...data, latency_ms: latency };
         addLog('Response', '200 OK', JSON.stringify(displayData, null, 2), true);
         // ── InfinitePay checkout flow ──────────────────────────
-        if (data.checkoutUrl && data.orderNsu) {
-            // Open payment page
-            window.open(data.checkoutUrl, '_blank', 'width=600,height=800');
-            // Show the overlay and start polling
-            showPaymentOverlay(data.orderNsu);
-            startPolling(data.orderNsu);
+        // The payment is accepted as PENDING_CREATE; the checkout link
+        // usually arrives a moment later with the switch to PENDING
+        if (data.orderNsu) {
+            openedCheckoutUrl = null;
+            showPaymentOverlay(data.orderNsu, null);
+            if (data.checkoutUrl) {
+                openCheckout(data.orderNsu, data.checkoutUrl);
+            }
+            startListening(data.orderNsu);
         }
     }
     catch (e) {
@@ -72,24 +75,41 @@ async function executeTransaction() {
 function getOverlay() {
     return document.getElementById('payment-status');
 }
-function showPaymentOverlay(orderNsu) {
+function showPaymentOverlay(orderNsu, checkoutUrl) {
     const overlay = getOverlay();
     if (!overlay)
         return;
     overlay.classList.remove('payment-overlay--hidden');
     overlay.className = 'payment-overlay'; // reset variant classes
+    const body = checkoutUrl
+        ? `<h3 class="payment-overlay__title">Waiting for Payment</h3>
+           <p class="payment-overlay__text">
+               Complete the payment in the window that just opened.
+               <a href="${checkoutUrl}" target="_blank">Open it again</a>
+           </p>`
+        : `<h3 class="payment-overlay__title">Creating Checkout Link</h3>
+           <p class="payment-overlay__text">
+               The payment window opens as soon as InfinitePay returns the link.
+           </p>`;
     overlay.innerHTML = `
         <div class="payment-overlay__content">
             <div class="payment-spinner"></div>
-            <h3 class="payment-overlay__title">Waiting for Payment</h3>
-            <p class="payment-overlay__text">
-                Complete the payment in the window that just opened.
-            </p>
+            ${body}
             <p class="payment-overlay__nsu font-mono">${orderNsu}</p>
             <p class="payment-overlay__hint">This page will update automatically</p>
         </div>
     `;
 }
+/**
+ * Opens the payment page once per order, as soon as its link is known
+ */
+function openCheckout(orderNsu, checkoutUrl) {
+    if (openedCheckoutUrl === checkoutUrl)
+        return;
+    openedCheckoutUrl = checkoutUrl;
+    window.open(checkoutUrl, '_blank', 'width=600,height=800');
+    showPaymentOverlay(orderNsu, checkoutUrl);
+}
 function showSuccess(txn) {
     var _a;
     const overlay = getOverlay();
@@ -166,50 +186,51 @@ function hidePaymentOverlay() {
     if (!overlay)
         return;
     overlay.classList.add('payment-overlay--hidden');
-    stopPolling();
+    stopListening();
 }
 // ══════════════════════════════════════════════════════════════════
-//  POLLING
+//  STATUS PUSH (Server-Sent Events)
 // ══════════════════════════════════════════════════════════════════
-function startPolling(orderNsu) {
-    stopPolling(); // clear any previous
-    pollingInterval = setInterval(async () => {
-        try {
-            const txn = await checkPaymentStatus(orderNsu);
-            if (txn.status === 'APPROVED') {
-                stopPolling();
-                showSuccess(txn);
-                addLog('Webhook', 'PAYMENT APPROVED', JSON.stringify(txn, null, 2), true);
-            }
-            else if (txn.status === 'DENIED') {
-                stopPolling();
-                showError('Payment was declined by the processor.');
-                addLog('Webhook', 'PAYMENT DENIED', JSON.stringify(txn, null, 2), false);
-            }
-            // PENDING → keep polling
+function startListening(orderNsu) {
+    stopListening(); // close any previous
+    statusSource = subscribeToPaymentStatus(orderNsu, (txn) => {
+        if (txn.status === 'APPROVED') {
+            stopListening();
+            showSuccess(txn);
+            addLog('Webhook', 'PAYMENT APPROVED', JSON.stringify(txn, null, 2), true);
         }
-        catch (err) {
-            console.error('Polling error:', err);
-            // Don't stop — network glitch
+        else if (txn.status === 'DENIED') {
+            stopListening();
+            showError(openedCheckoutUrl
+                ? 'Payment was declined by the processor.'
+                : 'The checkout link could not be created.');
+            addLog('Webhook', 'PAYMENT DENIED', JSON.stringify(txn, null, 2), false);
         }
-    }, POLL_INTERVAL_MS);
+        else if (txn.checkoutUrl) {
+            openCheckout(orderNsu, txn.checkoutUrl);
+        }
+        // PENDING_CREATE / PENDING → keep listening
+    }, (err) => {
+        // EventSource reconnects on its own — network glitch
+        console.error('Status stream error:', err);
+    });
     // Absolute timeout
-    pollingTimeout = setTimeout(() => {
-        if (pollingInterval) {
-            stopPolling();
+    statusTimeout = setTimeout(() => {
+        if (statusSource) {
+            stopListening();
             showTimeout();
-            addLog('Timeout', 'POLLING TIMEOUT', 'No webhook received within 10 min', false);
+            addLog('Timeout', 'PAYMENT TIMEOUT', 'No webhook received within 10 min', false);
         }
-    }, POLL_TIMEOUT_MS);
+    }, STATUS_TIMEOUT_MS);
 }
-function stopPolling() {
-    if (pollingInterval) {
-        clearInterval(pollingInterval);
-        pollingInterval = null;
+function stopListening() {
+    if (statusSource) {
+        statusSource.close();
+        statusSource = null;
     }
-    if (pollingTimeout) {
-        clearTimeout(pollingTimeout);
-        pollingTimeout = null;
+    if (statusTimeout) {
+        clearTimeout(statusTimeout);
+        statusTimeout = null;
     }
 }
 // ══════════════════════════════════════════════════════════════════
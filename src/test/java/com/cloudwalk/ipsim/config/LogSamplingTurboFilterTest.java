@@ -0,0 +1,56 @@
+package com.cloudwalk.ipsim.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogSamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger appLogger = context.getLogger("com.cloudwalk.ipsim.service.PaymentService");
+    private final Logger frameworkLogger = context.getLogger("org.hibernate.SQL");
+    private final LogSamplingTurboFilter filter = new LogSamplingTurboFilter();
+
+    @AfterEach
+    void clearMdc() {
+        MDC.remove(LogSamplingFilter.MDC_KEY);
+    }
+
+    @Test
+    void testInfoOfUnsampledRequestIsDropped() {
+        MDC.put(LogSamplingFilter.MDC_KEY, "false");
+
+        assertEquals(FilterReply.DENY, decide(appLogger, Level.INFO));
+        assertEquals(FilterReply.NEUTRAL, decide(appLogger, Level.WARN));
+        assertEquals(FilterReply.NEUTRAL, decide(appLogger, Level.ERROR));
+        assertEquals(FilterReply.NEUTRAL, decide(frameworkLogger, Level.INFO));
+    }
+
+    @Test
+    void testSampledRequestsAndBackgroundWorkAreLogged() {
+        assertEquals(FilterReply.NEUTRAL, decide(appLogger, Level.INFO));
+
+        MDC.put(LogSamplingFilter.MDC_KEY, "true");
+        assertEquals(FilterReply.NEUTRAL, decide(appLogger, Level.INFO));
+    }
+
+    @Test
+    void testDecisionIsCarriedToAnotherThread() throws InterruptedException {
+        FilterReply[] reply = new FilterReply[1];
+        Thread worker = Thread.ofPlatform().start(() -> reply[0] =
+                LogSamplingFilter.callWith("false", () -> decide(appLogger, Level.INFO)));
+        worker.join();
+
+        assertEquals(FilterReply.DENY, reply[0]);
+    }
+
+    private FilterReply decide(Logger logger, Level level) {
+        return filter.decide(null, logger, level, "message", null, null);
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudwalk.ipsim.config;
+
+import com.cloudwalk.ipsim.service.OrderNsuGenerator;
+import com.cloudwalk.ipsim.service.SnowflakeOrderNsuGenerator;
+import com.cloudwalk.ipsim.service.UuidOrderNsuGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNsuConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(OrderNsuConfig.class);
+
+    @Test
+    void testUuidIsTheDefault() {
+        contextRunner.run(context ->
+                assertInstanceOf(UuidOrderNsuGenerator.class, context.getBean(OrderNsuGenerator.class)));
+    }
+
+    @Test
+    void testSnowflakeWithoutNodeIdFailsStartup() {
+        contextRunner.withPropertyValues("ipsim.order-nsu.generator=snowflake", "ipsim.order-nsu.node-id=")
+                .run(context -> {
+                    Throwable failure = context.getStartupFailure();
+                    while (failure.getCause() != null) {
+                        failure = failure.getCause();
+                    }
+                    assertInstanceOf(IllegalStateException.class, failure);
+                    assertTrue(failure.getMessage().contains("IPSIM_NODE_ID"), failure.getMessage());
+                });
+    }
+
+    @Test
+    void testSnowflakeWithNodeId() {
+        contextRunner.withPropertyValues("ipsim.order-nsu.generator=snowflake", "ipsim.order-nsu.node-id=3")
+                .run(context ->
+                        assertInstanceOf(SnowflakeOrderNsuGenerator.class, context.getBean(OrderNsuGenerator.class)));
+    }
+}
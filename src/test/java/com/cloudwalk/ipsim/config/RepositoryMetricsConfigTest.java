@@ -0,0 +1,64 @@
+package com.cloudwalk.ipsim.config;
+
+import com.cloudwalk.ipsim.repository.CardRepository;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocationResult;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RepositoryMetricsConfigTest {
+
+    private static final RepositoryMethodInvocationResult SUCCESS = new RepositoryMethodInvocationResult() {
+        @Override
+        public State getState() {
+            return State.SUCCESS;
+        }
+
+        @Override
+        public Throwable getError() {
+            return null;
+        }
+    };
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RepositoryMetricsConfig.RepositoryMetricsListener listener = listener(registry);
+
+    @Test
+    void testInheritedMethodIsTimedPerRepository() throws NoSuchMethodException {
+        // Same Method object for both repositories
+        Method save = CrudRepository.class.getMethod("save", Object.class);
+
+        listener.afterInvocation(new RepositoryMethodInvocation(TransactionRepository.class, save, SUCCESS, 1_000));
+        listener.afterInvocation(new RepositoryMethodInvocation(CardRepository.class, save, SUCCESS, 2_000));
+        listener.afterInvocation(new RepositoryMethodInvocation(CardRepository.class, save, SUCCESS, 3_000));
+
+        Timer transactions = timer("TransactionRepository");
+        Timer cards = timer("CardRepository");
+        assertEquals(1, transactions.count());
+        assertEquals(1_000, transactions.totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(2, cards.count());
+        assertEquals(5_000, cards.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    private static RepositoryMetricsConfig.RepositoryMetricsListener listener(MeterRegistry registry) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        return new RepositoryMetricsConfig.RepositoryMetricsListener(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private Timer timer(String repository) {
+        return registry.get("ipsim.repository.invocations")
+                .tags("repository", repository, "method", "save", "outcome", "success")
+                .timer();
+    }
+}
@@ -0,0 +1,83 @@
+package com.cloudwalk.ipsim.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/transactions/batch reports every item, whatever fails
+ *
+ * The relay is off and the outbox holds at most 2 entries, so with chunks
+ * of 2 the second chunk of valid payments is rejected as a whole.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch-endpoint;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.outbox.relay.enabled=false",
+        "ipsim.outbox.max-backlog=2",
+        "ipsim.batch.persist-chunk-size=2",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-batch-endpoint-webhooks",
+        "ipsim.dashboard.checkpoint.file=${java.io.tmpdir}/ipsim-batch-endpoint-dashboard.json"
+})
+@AutoConfigureMockMvc
+class TransactionControllerBatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testInvalidItemsAndFailedChunkDoNotFailTheBatch() throws Exception {
+        String body = """
+                {"payments": [
+                  %s,
+                  {"type": "DEBIT", "cardNumber": "4000123456789010", "cardHolder": "BATCH TEST", "cardExpiry": "12/30"},
+                  %s,
+                  {"amount": 10.00, "type": "DEBIT", "cardNumber": "12", "cardHolder": "BATCH TEST", "cardExpiry": "12/30"},
+                  %s,
+                  %s
+                ]}""".formatted(valid(), valid(), valid(), valid());
+
+        MvcResult result = mockMvc.perform(post("/api/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(6))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(4))
+                // First chunk stored
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[0].transaction.status").value("PENDING_CREATE"))
+                .andExpect(jsonPath("$.results[2].success").value(true))
+                // Bean validation and tokenization, per item
+                .andExpect(jsonPath("$.results[1].success").value(false))
+                .andExpect(jsonPath("$.results[1].transaction").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].error").value("Amount is required"))
+                .andExpect(jsonPath("$.results[3].error").value("Card number is too short"))
+                // Second chunk rejected, without internal details
+                .andExpect(jsonPath("$.results[4].success").value(false))
+                .andExpect(jsonPath("$.results[4].error").value("Checkout backlog is full, retry later"))
+                .andExpect(jsonPath("$.results[5].error").value("Checkout backlog is full, retry later"));
+    }
+
+    private static String valid() {
+        return """
+                {"amount": 150.00, "type": "CREDIT_SPOT", "installments": 1,
+                 "cardNumber": "4000123456789010", "cardHolder": "BATCH TEST", "cardExpiry": "12/30"}""";
+    }
+}
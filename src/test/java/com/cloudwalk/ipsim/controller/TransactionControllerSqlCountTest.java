@@ -0,0 +1,134 @@
+package com.cloudwalk.ipsim.controller;
+
+import com.cloudwalk.ipsim.model.Card;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.CardRepository;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Number of SQL statements per read endpoint call
+ *
+ * Read endpoints select straight into the response DTO, so each call must
+ * be a single statement, with no extra card loads.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-count;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.outbox.relay.enabled=false",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-sql-count-webhooks",
+        "ipsim.dashboard.checkpoint.file=${java.io.tmpdir}/ipsim-sql-count-dashboard.json"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionControllerSqlCountTest {
+
+    private static final int TRANSACTIONS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    private Statistics statistics;
+
+    @BeforeAll
+    void seed() {
+        Card card = cardRepository.save(new Card("sql-count-card", "9010", "SQL COUNT", "12/30"));
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(new BigDecimal("150.00"));
+            transaction.setType(TransactionType.CREDIT_SPOT);
+            transaction.setInstallments(1);
+            transaction.setStatus(i % 2 == 0 ? TransactionStatus.PENDING : TransactionStatus.APPROVED);
+            transaction.setTimestamp(LocalDateTime.now().minusMinutes(i));
+            transaction.setOrderNsu("ORD-SQL-" + i);
+            transaction.setCard(card);
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @BeforeEach
+    void resetStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testListingPageIsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/transactions").param("limit", "10"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testOrderLookupIsOneStatementThenCached() throws Exception {
+        mockMvc.perform(get("/api/transactions/order/ORD-SQL-3"))
+                .andExpect(status().isOk());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        mockMvc.perform(get("/api/transactions/order/ORD-SQL-3"))
+                .andExpect(status().isOk());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testExportIsOneStatement() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/transactions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testLoadingTransactionDoesNotLoadCard() {
+        Transaction transaction = transactionRepository.findByOrderNsu("ORD-SQL-5").orElseThrow();
+
+        assertFalse(Hibernate.isInitialized(transaction.getCard()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudwalk.ipsim.emulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyDistributionTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void testSamplesMatchMedianAndP99() {
+        LatencyDistribution distribution = LatencyDistribution.of(Duration.ofMillis(80), Duration.ofMillis(400));
+        SplittableRandom random = new SplittableRandom(42);
+
+        long[] millis = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            millis[i] = distribution.sample(random).toMillis();
+        }
+        Arrays.sort(millis);
+
+        assertEquals(80, millis[SAMPLES / 2], 3);
+        assertEquals(400, millis[SAMPLES * 99 / 100], 20);
+    }
+
+    @Test
+    void testP99BelowMedianMeansConstantDelay() {
+        LatencyDistribution distribution = LatencyDistribution.of(Duration.ofMillis(50), Duration.ZERO);
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(Duration.ofMillis(50), distribution.sample(random));
+        }
+    }
+
+    @Test
+    void testZeroMedianMeansNoDelay() {
+        assertEquals(Duration.ZERO, LatencyDistribution.of(Duration.ZERO, Duration.ofSeconds(1))
+                .sample(new SplittableRandom(42)));
+    }
+}
@@ -0,0 +1,132 @@
+package com.cloudwalk.ipsim.load;
+
+import com.cloudwalk.ipsim.IpSimApplication;
+import com.cloudwalk.ipsim.support.LoadDriver;
+import com.cloudwalk.ipsim.support.Ports;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payment insert throughput: default profile (H2 file) vs prod profile
+ * (PostgreSQL, tuned Hikari pool, reWriteBatchedInserts)
+ *
+ * Fires concurrent POST /api/transactions/batch against the in-process
+ * InfinitePay emulator with no latency and no errors, so the database is
+ * the bottleneck.
+ *
+ * The prod profile needs a PostgreSQL database (it is skipped otherwise):
+ * IPSIM_TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/ipsim_load
+ * IPSIM_TEST_POSTGRES_USERNAME / IPSIM_TEST_POSTGRES_PASSWORD
+ *
+ * Excluded from the default build. Run with:
+ * mvn -B test -Pload-test -Dtest=DatasourceProfileLoadTest
+ */
+@Tag("load")
+class DatasourceProfileLoadTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int CONCURRENCY = 32;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void compareDatasourceProfiles() throws Exception {
+        String payload = batchPayload();
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %9s %9s %13s %9s %9s",
+                "profile", "batches", "failed", "payments/s", "p50 ms", "p99 ms"));
+
+        Path h2Directory = Files.createTempDirectory("ipsim-load-h2");
+        report.add(run("default", payload, List.of(
+                "spring.datasource.url=jdbc:h2:file:" + h2Directory.resolve("ipsim"))));
+
+        String postgresUrl = System.getenv("IPSIM_TEST_POSTGRES_URL");
+        if (postgresUrl != null) {
+            report.add(run("prod", payload, List.of(
+                    "spring.datasource.url=" + postgresUrl,
+                    "spring.datasource.username=" + System.getenv().getOrDefault("IPSIM_TEST_POSTGRES_USERNAME", "ipsim"),
+                    "spring.datasource.password=" + System.getenv().getOrDefault("IPSIM_TEST_POSTGRES_PASSWORD", ""),
+                    // prod refuses the development key the emulator profile falls back to
+                    "ipsim.card-vault.key=ipsim-load-test-card-vault-key")));
+        } else {
+            report.add("prod     skipped (IPSIM_TEST_POSTGRES_URL not set)");
+        }
+
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private String run(String profile, String payload, List<String> datasource) throws IOException, InterruptedException {
+        int port = Ports.freeLoopbackPort();
+        try (ConfigurableApplicationContext app = startApp(profile, port, datasource)) {
+            LoadDriver driver = new LoadDriver(URI.create("http://127.0.0.1:" + port + "/api/transactions/batch"));
+            driver.run(CONCURRENCY, payload); // warm-up: JIT, pools, statement caches
+
+            List<Long> latencies = new ArrayList<>();
+            int batches = 0;
+            int failed = 0;
+            long wallNanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                LoadDriver.Result r = driver.run(CONCURRENCY, payload);
+                batches += r.successes();
+                failed += r.failures();
+                wallNanos += r.wallNanos();
+                for (long latency : r.sortedLatencies()) {
+                    latencies.add(latency);
+                }
+            }
+            assertTrue(batches > 0, profile + " profile created no payment");
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            double paymentsPerSecond = (double) batches * BATCH_SIZE / (wallNanos / 1_000_000_000.0);
+            return String.format("%-8s %9d %9d %13.0f %9.1f %9.1f", profile, batches, failed, paymentsPerSecond,
+                    LoadDriver.percentileMillis(sorted, 50), LoadDriver.percentileMillis(sorted, 99));
+        }
+    }
+
+    private ConfigurableApplicationContext startApp(String profile, int port, List<String> datasource) {
+        String tmp = System.getProperty("java.io.tmpdir");
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=" + port,
+                "spring.jpa.show-sql=false",
+                "ipsim.emulator.latency.median=0ms",
+                "ipsim.emulator.error-rate=0",
+                "ipsim.emulator.timeout-rate=0",
+                "ipsim.emulator.payment.approval-rate=0",
+                "infinitepay.bulkhead.checkout-max-concurrent=1000",
+                "ipsim.reconciler.enabled=false",
+                "ipsim.webhook.queue.dir=" + tmp + "/ipsim-load-datasource-webhooks-" + profile,
+                "ipsim.dashboard.checkpoint.file=" + tmp + "/ipsim-load-datasource-dashboard-" + profile + ".json",
+                "logging.level.com.cloudwalk.ipsim=WARN"));
+        properties.addAll(datasource);
+
+        List<String> profiles = new ArrayList<>(List.of("emulator"));
+        if (!"default".equals(profile)) {
+            profiles.add(profile);
+        }
+        return new SpringApplicationBuilder(IpSimApplication.class)
+                .profiles(profiles.toArray(String[]::new))
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    private static String batchPayload() {
+        StringJoiner payments = new StringJoiner(",", "{\"payments\": [", "]}");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            payments.add("""
+                    {"amount": 150.00, "type": "CREDIT_SPOT", "installments": 1,
+                     "cardNumber": "4000123456789010", "cardHolder": "LOAD TEST", "cardExpiry": "12/30"}""");
+        }
+        return payments.toString();
+    }
+}
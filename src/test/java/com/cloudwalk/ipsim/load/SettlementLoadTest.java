@@ -0,0 +1,133 @@
+package com.cloudwalk.ipsim.load;
+
+import com.cloudwalk.ipsim.IpSimApplication;
+import com.cloudwalk.ipsim.support.LoadDriver;
+import com.cloudwalk.ipsim.support.Ports;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end checkout -> webhook -> settlement latency
+ *
+ * Boots the application with the "emulator" profile, so InfinitePay is
+ * emulated in-process (latency, errors, timeouts, delayed payments and
+ * webhooks, see InfinitePayEmulator), and fires rounds of concurrent
+ * POST /api/transactions. Reports p50/p99/p999 of:
+ * - create: POST /api/transactions (payment accepted), measured by the client
+ * - outbox lag: payment accepted -> checkout link stored by the relay
+ * - webhook apply: webhook sent -> transaction APPROVED
+ * - settlement: checkout link requested -> transaction APPROVED
+ *
+ * Excluded from the default build. Run with:
+ * mvn -B test -Pload-test
+ */
+@Tag("load")
+class SettlementLoadTest {
+
+    private static final int ROUNDS = 5;
+    private static final int CONCURRENCY = 1_000;
+    private static final long SETTLE_TIMEOUT_MILLIS = 120_000;
+    private static final String PAYLOAD = """
+            {"amount": 150.00, "type": "CREDIT_SPOT", "installments": 1,
+             "cardNumber": "4000123456789010", "cardHolder": "LOAD TEST", "cardExpiry": "12/30"}
+            """;
+
+    @Test
+    void reportSettlementLatencies() throws Exception {
+        int port = Ports.freeLoopbackPort();
+        try (ConfigurableApplicationContext app = startApp(port)) {
+            MeterRegistry meterRegistry = app.getBean(MeterRegistry.class);
+            LoadDriver driver = new LoadDriver(URI.create("http://127.0.0.1:" + port + "/api/transactions"));
+
+            List<Long> createLatencies = new ArrayList<>();
+            int created = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                LoadDriver.Result r = driver.run(CONCURRENCY, PAYLOAD);
+                created += r.successes();
+                for (long latency : r.sortedLatencies()) {
+                    createLatencies.add(latency);
+                }
+            }
+
+            // Checkout links are created in the background: wait for the outbox to drain
+            long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+            while (meterRegistry.get("ipsim.outbox.backlog").gauge().value() > 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(250);
+            }
+
+            double scheduled = meterRegistry.get("ipsim.emulator.payments.scheduled").counter().count();
+            Timer outboxLag = meterRegistry.get("ipsim.outbox.lag").timer();
+            Timer settlement = meterRegistry.get("ipsim.emulator.settlement").timer();
+            Timer webhookApply = meterRegistry.get("ipsim.emulator.webhook.apply").timer();
+            while (settlement.count() < scheduled && System.currentTimeMillis() < deadline) {
+                Thread.sleep(250);
+            }
+
+            long[] create = createLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%-14s %8s %9s %9s %9s", "stage", "count", "p50 ms", "p99 ms", "p999 ms"));
+            report.add(String.format("%-14s %8d %9.1f %9.1f %9.1f", "create", create.length,
+                    LoadDriver.percentileMillis(create, 50), LoadDriver.percentileMillis(create, 99),
+                    LoadDriver.percentileMillis(create, 99.9)));
+            report.add(row("outbox lag", outboxLag));
+            report.add(row("webhook apply", webhookApply));
+            report.add(row("settlement", settlement));
+            System.out.println(String.join(System.lineSeparator(), report));
+
+            assertTrue(created > 0, "no payment was created");
+            assertEquals((long) scheduled, settlement.count(), "paid checkouts never settled");
+        }
+    }
+
+    private static String row(String stage, Timer timer) {
+        ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+        return String.format("%-14s %8d %9.1f %9.1f %9.1f", stage, timer.count(),
+                percentiles[0].value(TimeUnit.MILLISECONDS),
+                percentiles[1].value(TimeUnit.MILLISECONDS),
+                percentiles[2].value(TimeUnit.MILLISECONDS));
+    }
+
+    private ConfigurableApplicationContext startApp(int port) {
+        return new SpringApplicationBuilder(IpSimApplication.class)
+                .profiles("emulator")
+                .properties(
+                        "server.port=" + port,
+                        "spring.datasource.url=jdbc:h2:mem:load-settlement;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=10000",
+                        "infinitepay.http.max-connections=1000",
+                        "infinitepay.http.pending-acquire-max-count=20000",
+                        "infinitepay.http.pending-acquire-timeout=30s",
+                        "infinitepay.http.response-timeout=2s",
+                        "infinitepay.bulkhead.checkout-max-concurrent=20000",
+                        "ipsim.outbox.relay.workers=16",
+                        "ipsim.outbox.relay.concurrency=64",
+                        "management.metrics.distribution.percentiles.ipsim.outbox.lag=0.5,0.99,0.999",
+                        "ipsim.emulator.timeout-delay=3s",
+                        "ipsim.emulator.payment.approval-rate=1",
+                        "ipsim.emulator.payment.delay.median=500ms",
+                        "ipsim.emulator.payment.delay.p99=3s",
+                        "ipsim.reconciler.enabled=false",
+                        "ipsim.webhook.queue.dir=" + System.getProperty("java.io.tmpdir") + "/ipsim-load-settlement-webhooks",
+                        "ipsim.dashboard.checkpoint.file=" + System.getProperty("java.io.tmpdir")
+                                + "/ipsim-load-settlement-dashboard.json",
+                        "logging.level.com.cloudwalk.ipsim=WARN")
+                .run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.cloudwalk.ipsim.load;
+
+import com.cloudwalk.ipsim.IpSimApplication;
+import com.cloudwalk.ipsim.support.InfinitePayStubServer;
+import com.cloudwalk.ipsim.support.LoadDriver;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares platform and virtual threads for POST /api/transactions
+ *
+ * Boots the application once per thread mode against a local InfinitePay
+ * stub and fires 1k, 5k and 10k concurrent checkout requests.
+ *
+ * Excluded from the default build. Run with:
+ * mvn -B test -Pload-test
+ */
+@Tag("load")
+class ThreadModeLoadTest {
+
+    private static final int[] CONCURRENCY = { 1_000, 5_000, 10_000 };
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(200);
+    private static final String PAYLOAD = """
+            {"amount": 150.00, "type": "CREDIT_SPOT", "installments": 1,
+             "cardNumber": "4000123456789010", "cardHolder": "LOAD TEST", "cardExpiry": "12/30"}
+            """;
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %7s %7s %7s %10s %9s %9s %9s",
+                "mode", "conc", "ok", "failed", "req/s", "p50 ms", "p99 ms", "max ms"));
+
+        try (InfinitePayStubServer stub = InfinitePayStubServer.start(UPSTREAM_LATENCY)) {
+            for (boolean virtual : new boolean[] { false, true }) {
+                String mode = virtual ? "virtual" : "platform";
+                try (ConfigurableApplicationContext app = startApp(stub, virtual)) {
+                    int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+                    LoadDriver driver = new LoadDriver(URI.create("http://127.0.0.1:" + port + "/api/transactions"));
+
+                    driver.run(500, PAYLOAD); // warm-up: JIT, pools, H2
+
+                    for (int concurrency : CONCURRENCY) {
+                        LoadDriver.Result r = driver.run(concurrency, PAYLOAD);
+                        report.add(String.format("%-8s %7d %7d %7d %10.1f %9.1f %9.1f %9.1f",
+                                mode, concurrency, r.successes(), r.failures(), r.throughputPerSecond(),
+                                r.percentileMillis(50), r.percentileMillis(99), r.percentileMillis(100)));
+                        assertTrue(r.successes() > 0, mode + " mode served no requests at " + concurrency);
+                    }
+                }
+            }
+        }
+
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private ConfigurableApplicationContext startApp(InfinitePayStubServer stub, boolean virtual) {
+        return new SpringApplicationBuilder(IpSimApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.datasource.url=jdbc:h2:mem:load-" + (virtual ? "virtual" : "platform")
+                                + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=10000",
+                        "infinitepay.handle=load-test",
+                        "infinitepay.api.base-url=" + stub.baseUrl(),
+                        // Measure the thread model, not upstream pool back-pressure
+                        "infinitepay.http.max-connections=1000",
+                        "infinitepay.http.pending-acquire-max-count=20000",
+                        "infinitepay.http.pending-acquire-timeout=30s",
+                        "infinitepay.bulkhead.checkout-max-concurrent=20000",
+                        "infinitepay.webhook.base-url=http://127.0.0.1",
+                        "ipsim.webhook.queue.dir=" + System.getProperty("java.io.tmpdir")
+                                + "/ipsim-load-webhooks-" + (virtual ? "virtual" : "platform"),
+                        "ipsim.dashboard.checkpoint.file=" + System.getProperty("java.io.tmpdir")
+                                + "/ipsim-load-dashboard-" + (virtual ? "virtual" : "platform") + ".json",
+                        "logging.level.com.cloudwalk.ipsim=WARN")
+                .run();
+    }
+}
@@ -0,0 +1,43 @@
+package com.cloudwalk.ipsim.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7Test {
+
+    @Test
+    void testLayoutCarriesTimestampVersionAndVariant() {
+        UuidV7 generator = new UuidV7(() -> 1_708_234_567_001L);
+
+        UUID uuid = generator.generate();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(1_708_234_567_001L, uuid.getMostSignificantBits() >>> 16);
+        assertTrue(uuid.toString().startsWith("018dbab6-ed59-7000-"), uuid.toString());
+    }
+
+    @Test
+    void testIdsIncreaseAsUnsignedBytesEvenWhenClockGoesBackwards() {
+        AtomicLong clock = new AtomicLong(1_000_000L);
+        UuidV7 generator = new UuidV7(clock::get);
+        Set<UUID> seen = new HashSet<>();
+
+        UUID previous = generator.generate();
+        for (int i = 0; i < 3 * (UuidV7.COUNTER_MASK + 1); i++) {
+            if (i == 100) {
+                clock.set(999_000L);
+            }
+            UUID next = generator.generate();
+            // Databases compare UUIDs as unsigned bytes, most significant first
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            assertTrue(seen.add(next));
+            previous = next;
+        }
+    }
+}
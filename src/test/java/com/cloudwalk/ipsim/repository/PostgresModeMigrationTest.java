@@ -0,0 +1,72 @@
+package com.cloudwalk.ipsim.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Flyway migrations must run unchanged on PostgreSQL (prod profile)
+ *
+ * Runs them on H2 in PostgreSQL compatibility mode, which rejects most
+ * H2-only syntax, then writes and reads a transaction the way the
+ * application does.
+ */
+class PostgresModeMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:postgres-mode;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void testMigrationsRunInPostgresMode() throws SQLException {
+        MigrateResult result = Flyway.configure().dataSource(URL, "sa", "").load().migrate();
+
+        assertTrue(result.success);
+        assertEquals(8, result.migrationsExecuted);
+
+        UUID cardId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO cards (id, token, last4, holder_name, expiry_date) VALUES (?, ?, ?, ?, ?)")) {
+                ps.setObject(1, cardId);
+                ps.setString(2, "token-1");
+                ps.setString(3, "9010");
+                ps.setString(4, "Postgres Mode");
+                ps.setString(5, "12/30");
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO transactions (id, amount, type, installments, status, timestamp, card_id, order_nsu)
+                    VALUES (?, 150.00, 'CREDIT_SPOT', 1, 'PENDING_CREATE', LOCALTIMESTAMP, ?, 'ORD-PG-1')
+                    """)) {
+                ps.setObject(1, transactionId);
+                ps.setObject(2, cardId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO checkout_outbox (transaction_id, attempts, next_attempt_at, created_at)
+                    VALUES (?, 0, LOCALTIMESTAMP, LOCALTIMESTAMP)
+                    """)) {
+                ps.setObject(1, transactionId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, created_at FROM transactions WHERE order_nsu = ?")) {
+                ps.setString(1, "ORD-PG-1");
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(transactionId, rs.getObject(1, UUID.class));
+                    assertNotNull(rs.getTimestamp(2));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.cloudwalk.ipsim.repository;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query plan audit for the transactions table
+ *
+ * Seeds one million rows, calls the repository methods behind the hot paths
+ * and runs EXPLAIN on the exact SQL Hibernate sent, with the same bound
+ * parameters: every hot query must be served by an index instead of a
+ * table scan, and a listing page after a cursor must seek into the index
+ * rather than read it from the top.
+ *
+ * Seeding takes minutes, so it is excluded from the default build. Run with:
+ * mvn -B test -Pload-test -Dtest=TransactionIndexPlanTest
+ * (-Dipsim.plan.rows=100000 for a quicker, smaller run)
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.outbox.relay.enabled=false",
+        "logging.level.com.cloudwalk.ipsim=WARN"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionIndexPlanTest {
+
+    private static final int ROWS = Integer.getInteger("ipsim.plan.rows", 1_000_000);
+    private static final int CARDS = 1_000;
+    private static final int CHUNK = 100_000;
+    private static final LocalDateTime END = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    /**
+     * Statements prepared by the current thread while capturing, null otherwise
+     */
+    private static final ThreadLocal<List<CapturedStatement>> CAPTURED = new ThreadLocal<>();
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("ipsim-plan").toString();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:file:" + dir + "/plan;CACHE_SIZE=65536");
+        registry.add("ipsim.webhook.queue.dir", () -> dir + "/webhooks");
+        registry.add("ipsim.dashboard.checkpoint.file", () -> dir + "/dashboard.json");
+    }
+
+    @BeforeAll
+    void seed() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE card_seed AS SELECT X AS n, RANDOM_UUID() AS id FROM SYSTEM_RANGE(0, "
+                    + (CARDS - 1) + ")");
+            st.execute("INSERT INTO cards (id, token, last4, holder_name, expiry_date) "
+                    + "SELECT id, 'token-' || n, '1111', 'Plan Test', '12/30' FROM card_seed");
+
+            // 90% APPROVED, 9% DENIED, 1% PENDING, created one per second going back from 2026-01-01
+            for (int from = 1; from <= ROWS; from += CHUNK) {
+                st.execute("""
+                        INSERT INTO transactions (id, amount, net_amount, type, installments, status, timestamp,
+                            created_at, card_id, order_nsu, infinite_pay_slug, infinite_pay_transaction_nsu)
+                        SELECT RANDOM_UUID(), 100.00, 98.50, 'DEBIT', 1,
+                            CASE WHEN MOD(r.X, 100) = 0 THEN 'PENDING'
+                                 WHEN MOD(r.X, 10) = 0 THEN 'DENIED'
+                                 ELSE 'APPROVED' END,
+                            DATEADD(SECOND, -r.X + 60, TIMESTAMP '2026-01-01 00:00:00'),
+                            DATEADD(SECOND, -r.X, TIMESTAMP '2026-01-01 00:00:00'),
+                            c.id, 'ORD-' || r.X, 'slug-' || r.X,
+                            CASE WHEN MOD(r.X, 10) = 0 THEN NULL ELSE 'TXN-' || r.X END
+                        FROM SYSTEM_RANGE(%d, %d) r
+                        JOIN card_seed c ON c.n = MOD(r.X, %d)
+                        """.formatted(from, Math.min(from + CHUNK - 1, ROWS), CARDS));
+            }
+            st.execute("ANALYZE");
+        }
+        log.info("Seeded {} transactions in {} ms", ROWS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Test
+    void testWebhookBatchLookupUsesOrderNsuIndex() throws SQLException {
+        CapturedStatement statement = capture(() ->
+                transactionRepository.findByOrderNsuIn(List.of("ORD-1", "ORD-500000", "ORD-999999")));
+
+        assertUsesIndex("UK_TRANSACTIONS_ORDER_NSU", statement);
+    }
+
+    @Test
+    void testOrderSnapshotUsesOrderNsuIndex() throws SQLException {
+        CapturedStatement statement = capture(() -> transactionRepository.findSnapshotByOrderNsu("ORD-500000"));
+
+        assertUsesIndex("UK_TRANSACTIONS_ORDER_NSU", statement);
+    }
+
+    @Test
+    void testReconcilerPagesSeekIntoStatusTimestampIndex() throws SQLException {
+        LocalDateTime before = END.minusDays(1);
+        CapturedStatement first = capture(() -> transactionRepository.findStale(
+                TransactionStatus.PENDING, before, null, null, Limit.of(100)));
+        CapturedStatement next = capture(() -> transactionRepository.findStale(
+                TransactionStatus.PENDING, before, END.minusDays(5), UUID.randomUUID(), Limit.of(100)));
+
+        for (CapturedStatement statement : List.of(first, next)) {
+            String plan = assertUsesIndex("IDX_TRANSACTIONS_STATUS_TIMESTAMP", statement);
+            assertTrue(plan.contains("STATUS = ?"), plan);
+        }
+    }
+
+    @Test
+    void testListingFirstPageIsReadInIndexOrder() throws SQLException {
+        CapturedStatement unfiltered = capture(() -> transactionRepository.findFirstPage(
+                null, null, null, null, Limit.of(51)));
+        CapturedStatement filtered = capture(() -> transactionRepository.findFirstPage(
+                TransactionStatus.APPROVED, TransactionType.DEBIT, END.minusDays(3), END.minusDays(1), Limit.of(51)));
+
+        for (CapturedStatement statement : List.of(unfiltered, filtered)) {
+            String plan = assertUsesIndex("IDX_TRANSACTIONS_CREATED_AT_ID", statement);
+            assertTrue(plan.contains("index sorted"), plan);
+        }
+    }
+
+    @Test
+    void testListingNextPageSeeksPastTheCursor() throws SQLException {
+        // Cursor halfway into the table: the last row of page N
+        TransactionResponseDTO last = transactionRepository.findFirstPage(
+                null, null, null, END.minusSeconds(ROWS / 2), Limit.of(1)).get(0);
+        CapturedStatement unfiltered = capture(() -> transactionRepository.findPageAfter(
+                null, null, null, null, last.getCreatedAt(), last.getId(), Limit.of(51)));
+        CapturedStatement filtered = capture(() -> transactionRepository.findPageAfter(
+                TransactionStatus.APPROVED, TransactionType.DEBIT, END.minusSeconds(ROWS), null,
+                last.getCreatedAt(), last.getId(), Limit.of(51)));
+
+        for (CapturedStatement statement : List.of(unfiltered, filtered)) {
+            String plan = assertUsesIndex("IDX_TRANSACTIONS_CREATED_AT_ID", statement);
+            assertTrue(plan.contains("index sorted"), plan);
+            // Range condition on the index itself, not a filter applied while reading from the top
+            assertTrue(plan.contains("IDX_TRANSACTIONS_CREATED_AT_ID: CREATED_AT <= ?"), plan);
+        }
+    }
+
+    @Test
+    void testExportIsReadInIndexOrder() throws SQLException {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        CapturedStatement statement = capture(() -> readOnly.execute(status -> {
+            try (Stream<TransactionResponseDTO> rows = transactionRepository.streamForExport(
+                    TransactionStatus.APPROVED, null, END.minusDays(3), null)) {
+                return rows.findFirst();
+            }
+        }));
+
+        String plan = assertUsesIndex("IDX_TRANSACTIONS_CREATED_AT_ID", statement);
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    /**
+     * Runs a repository call and returns the one statement it prepared
+     */
+    private static CapturedStatement capture(Runnable call) {
+        List<CapturedStatement> statements = new ArrayList<>();
+        CAPTURED.set(statements);
+        try {
+            call.run();
+        } finally {
+            CAPTURED.remove();
+        }
+        assertEquals(1, statements.size(), () -> "expected one statement, got " + statements);
+        return statements.get(0);
+    }
+
+    private String assertUsesIndex(String index, CapturedStatement statement) throws SQLException {
+        String plan = explain(statement);
+        log.debug("{}", plan);
+        assertTrue(plan.contains(index), "expected " + index + " in plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        return plan;
+    }
+
+    /**
+     * EXPLAIN of the captured SQL, with the parameters bound the same way
+     */
+    private String explain(CapturedStatement statement) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+            for (ParameterBinding binding : statement.bindings()) {
+                try {
+                    binding.setter().invoke(ps, binding.args());
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new SQLException("Could not bind " + binding.setter().getName(), e);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private record ParameterBinding(Method setter, Object[] args) {
+    }
+
+    private record CapturedStatement(String sql, List<ParameterBinding> bindings) {
+    }
+
+    /**
+     * Wraps the DataSource so statements prepared while capturing are
+     * recorded with their parameter bindings
+     */
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor statementCapture() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? proxy(DataSource.class, dataSource, TransactionIndexPlanTest::onDataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    private static Object onDataSource(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        return result instanceof Connection connection
+                ? proxy(Connection.class, connection, TransactionIndexPlanTest::onConnection)
+                : result;
+    }
+
+    private static Object onConnection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        List<CapturedStatement> statements = CAPTURED.get();
+        if (statements != null && result instanceof PreparedStatement ps && method.getName().equals("prepareStatement")) {
+            CapturedStatement statement = new CapturedStatement((String) args[0], new ArrayList<>());
+            statements.add(statement);
+            return proxy(PreparedStatement.class, ps, (t, m, a) -> {
+                if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                    statement.bindings().add(new ParameterBinding(m, a.clone()));
+                }
+                return invoke(t, m, a);
+            });
+        }
+        return result;
+    }
+
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (p, method, args) -> handler.handle(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.cloudwalk.ipsim.service;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CardTokenizerTest {
+
+    private final CardTokenizer tokenizer = new CardTokenizer("test-key");
+
+    @Test
+    void testSameCardGetsSameTokenRegardlessOfFormatting() {
+        String token = tokenizer.tokenize("4000123456789010", "12/30");
+
+        assertEquals(64, token.length());
+        assertEquals(token, tokenizer.tokenize("4000 1234 5678 9010", "12/30"));
+        assertEquals(token, tokenizer.tokenize("4000-1234-5678-9010", " 12/30 "));
+        assertFalse(token.contains("9010"));
+    }
+
+    @Test
+    void testTokenDependsOnExpiryAndKey() {
+        String token = tokenizer.tokenize("4000123456789010", "12/30");
+
+        assertNotEquals(token, tokenizer.tokenize("4000123456789010", "11/30"));
+        assertNotEquals(token, new CardTokenizer("other-key").tokenize("4000123456789010", "12/30"));
+    }
+
+    @Test
+    void testLast4() {
+        assertEquals("9010", CardTokenizer.last4("4000 1234 5678 9010"));
+        assertThrows(IllegalArgumentException.class, () -> CardTokenizer.last4("12 3"));
+    }
+}
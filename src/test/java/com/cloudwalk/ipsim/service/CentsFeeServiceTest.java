@@ -0,0 +1,86 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CentsFeeServiceTest {
+
+    private static final long SEED = 20240218L;
+    private static final int SAMPLES = 200_000;
+
+    private final FeeService feeService = new FeeService();
+    private final CentsFeeService centsFeeService = new CentsFeeService();
+
+    @Test
+    void testMatchesBigDecimalFeeServiceOnRandomAmounts() {
+        Random random = new Random(SEED);
+        TransactionType[] types = TransactionType.values();
+
+        for (int i = 0; i < SAMPLES; i++) {
+            long cents = randomCents(random);
+            TransactionType type = types[random.nextInt(types.length)];
+            int installments = 1 + random.nextInt(CentsFeeService.MAX_INSTALLMENTS);
+            BigDecimal amount = BigDecimal.valueOf(cents, 2);
+
+            long expectedFee = feeService.calculateFee(amount, type, installments).movePointRight(2).longValueExact();
+            long expectedNet = feeService.calculateNetAmount(amount, type, installments).movePointRight(2).longValueExact();
+
+            String context = amount + " " + type + " " + installments + "x (seed " + SEED + ")";
+            assertEquals(expectedFee, centsFeeService.calculateFee(cents, type, installments), context);
+            assertEquals(expectedNet, centsFeeService.calculateNetAmount(cents, type, installments), context);
+        }
+    }
+
+    @Test
+    void testRoundsTiesHalfUp() {
+        // 0.50 * 1.5% = 0.0075 -> 0.01 and -0.0075 -> -0.01
+        assertEquals(1, centsFeeService.calculateFee(50, TransactionType.DEBIT, 1));
+        assertEquals(-1, centsFeeService.calculateFee(-50, TransactionType.DEBIT, 1));
+        // 0.49 * 1.5% = 0.00735 -> 0.01 ; 0.33 * 1.5% = 0.00495 -> 0.00
+        assertEquals(1, centsFeeService.calculateFee(49, TransactionType.DEBIT, 1));
+        assertEquals(0, centsFeeService.calculateFee(33, TransactionType.DEBIT, 1));
+    }
+
+    @Test
+    void testBulkMatchesSingleCalls() {
+        long[] amounts = {10_000, 1, 999_999, -2_550};
+        long[] fees = new long[amounts.length];
+
+        centsFeeService.calculateFees(amounts, TransactionType.CREDIT_INSTALLMENT, 12, fees);
+        for (int i = 0; i < amounts.length; i++) {
+            assertEquals(centsFeeService.calculateFee(amounts[i], TransactionType.CREDIT_INSTALLMENT, 12), fees[i]);
+        }
+
+        TransactionType[] types = {TransactionType.DEBIT, TransactionType.CREDIT_SPOT,
+                TransactionType.CREDIT_INSTALLMENT, TransactionType.DEBIT};
+        int[] installments = {1, 1, 6, 1};
+        long[] mixed = new long[amounts.length];
+        centsFeeService.calculateFees(amounts, types, installments, mixed);
+        assertArrayEquals(new long[]{150, 0, 100_000, -38}, mixed);
+    }
+
+    @Test
+    void testRejectsInstallmentsOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> centsFeeService.calculateFee(100, TransactionType.CREDIT_INSTALLMENT, 13));
+        assertThrows(IllegalArgumentException.class,
+                () -> centsFeeService.calculateFee(100, TransactionType.DEBIT, 0));
+    }
+
+    /**
+     * Mix of small amounts (where rounding matters most) and large ones
+     */
+    private static long randomCents(Random random) {
+        long cents = switch (random.nextInt(3)) {
+            case 0 -> random.nextInt(1_000);
+            case 1 -> random.nextInt(10_000_000);
+            default -> Math.floorMod(random.nextLong(), 1_000_000_000_000L);
+        };
+        return random.nextInt(10) == 0 ? -cents : cents;
+    }
+}
@@ -0,0 +1,157 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.PaymentRequestDTO;
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.CardRepository;
+import com.cloudwalk.ipsim.repository.CheckoutOutboxRepository;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.cloudwalk.ipsim.support.Ports;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Payments are accepted with one local write, then relayed to the
+ * in-process InfinitePay emulator by the outbox workers
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout-outbox;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "ipsim.emulator.latency.median=0ms",
+        "ipsim.emulator.error-rate=0",
+        "ipsim.emulator.timeout-rate=0",
+        "ipsim.emulator.payment.approval-rate=0",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-checkout-outbox-webhooks",
+        "ipsim.dashboard.checkpoint.file=${java.io.tmpdir}/ipsim-checkout-outbox-dashboard.json"
+})
+@ActiveProfiles("emulator")
+class CheckoutOutboxServiceTest {
+
+    private static final long RELAY_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private BatchPaymentService batchPaymentService;
+
+    @Autowired
+    private CardVaultService cardVaultService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CheckoutOutboxRepository outboxRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @DynamicPropertySource
+    static void serverPort(DynamicPropertyRegistry registry) throws IOException {
+        // The emulator profile calls back into the application's own port
+        int port = Ports.freeLoopbackPort();
+        registry.add("server.port", () -> port);
+    }
+
+    @Test
+    void testPaymentIsAcceptedThenRelayed() {
+        Transaction accepted = paymentService.processPayment(newTransaction());
+
+        assertEquals(TransactionStatus.PENDING_CREATE, accepted.getStatus());
+        assertNull(accepted.getCheckoutUrl());
+        assertNotNull(accepted.getOrderNsu());
+
+        TransactionResponseDTO relayed = awaitStatus(accepted.getOrderNsu(), TransactionStatus.PENDING);
+        assertNotNull(relayed.getCheckoutUrl());
+        assertTrue(outboxRepository.findById(accepted.getId()).isEmpty());
+    }
+
+    @Test
+    void testBatchIsAcceptedThenRelayed() throws Exception {
+        List<PaymentRequestDTO> payments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            payments.add(newPayment("4000123456789010"));
+        }
+
+        List<BatchPaymentService.ItemResult> results = batchPaymentService.processBatch(payments).get();
+
+        assertEquals(3, results.size());
+        for (BatchPaymentService.ItemResult result : results) {
+            assertTrue(result.succeeded());
+            assertEquals(TransactionStatus.PENDING_CREATE, result.transaction().getStatus());
+            assertNotNull(awaitStatus(result.transaction().getOrderNsu(), TransactionStatus.PENDING).getCheckoutUrl());
+        }
+    }
+
+    @Test
+    void testBatchStoresEachNewCardOnce() throws Exception {
+        List<PaymentRequestDTO> payments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            payments.add(newPayment("5000111122223333"));
+        }
+
+        List<BatchPaymentService.ItemResult> results = batchPaymentService.processBatch(payments).get();
+
+        UUID cardId = results.get(0).transaction().getCard().getId();
+        assertNotNull(cardId);
+        for (BatchPaymentService.ItemResult result : results) {
+            assertTrue(result.succeeded());
+            assertEquals(cardId, result.transaction().getCard().getId());
+        }
+        assertEquals(1, cardRepository.findByTokenIn(
+                List.of(results.get(0).transaction().getCard().getToken())).size());
+
+        // Now cached: a new payment with the card does not need a lookup
+        assertEquals(cardId, cardVaultService.cardFor("5000111122223333", "OUTBOX TEST", "12/30").getId());
+    }
+
+    private Transaction newTransaction() {
+        return paymentService.newTransaction(newPayment("4000123456789010"));
+    }
+
+    private static PaymentRequestDTO newPayment(String pan) {
+        PaymentRequestDTO payment = new PaymentRequestDTO();
+        payment.setAmount(new BigDecimal("150.00"));
+        payment.setType(TransactionType.CREDIT_SPOT);
+        payment.setInstallments(1);
+        payment.setCardNumber(pan);
+        payment.setCardHolder("OUTBOX TEST");
+        payment.setCardExpiry("12/30");
+        return payment;
+    }
+
+    private TransactionResponseDTO awaitStatus(String orderNsu, TransactionStatus status) {
+        long deadline = System.currentTimeMillis() + RELAY_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            TransactionResponseDTO snapshot = transactionRepository.findSnapshotByOrderNsu(orderNsu).orElseThrow();
+            if (snapshot.getStatus() == status) {
+                return snapshot;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("Order " + orderNsu + " never reached " + status);
+    }
+}
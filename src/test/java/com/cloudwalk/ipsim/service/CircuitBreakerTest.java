@@ -0,0 +1,134 @@
+package com.cloudwalk.ipsim.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, OPEN_NANOS, 2,
+            clock::get, (from, to) -> transitions.add(from + "->" + to));
+
+    @Test
+    void testOpensOnceFailureRateReachesThreshold() {
+        fail();
+        succeed();
+        fail();
+        // Only 3 calls recorded, below minimumCalls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        succeed();
+        // 2 failures out of 4 = 50%
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertRejected();
+        assertEquals(OPEN_NANOS, breaker.remainingOpenNanos());
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrialCalls() {
+        openBreaker();
+        clock.addAndGet(OPEN_NANOS);
+
+        long first = acquire();
+        long second = acquire();
+        // Only two trial calls allowed while HALF_OPEN
+        assertRejected();
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void testTrialFailureReopens() {
+        openBreaker();
+        clock.addAndGet(OPEN_NANOS);
+
+        breaker.onFailure(acquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertRejected();
+    }
+
+    @Test
+    void testReleasedTrialPermissionCanBeReused() {
+        openBreaker();
+        clock.addAndGet(OPEN_NANOS);
+
+        acquire();
+        long released = acquire();
+        breaker.releasePermission(released);
+        acquire();
+    }
+
+    @Test
+    void testLateOutcomesDoNotCountAsTrialCalls() {
+        // Started while CLOSED, answered once the breaker is HALF_OPEN
+        long slowSuccess = acquire();
+        long slowFailure = acquire();
+        openBreaker();
+        clock.addAndGet(OPEN_NANOS);
+        long trial = acquire();
+
+        breaker.onSuccess(slowSuccess);
+        breaker.onSuccess(slowSuccess);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onFailure(slowFailure);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        // Only the trial calls decide
+        breaker.onSuccess(trial);
+        breaker.onSuccess(acquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testOldOutcomesLeaveTheWindow() {
+        fail();
+        for (int i = 0; i < 9; i++) {
+            succeed();
+        }
+        // Each failure pushes the oldest outcome out: the first failure goes first
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        // 4 failures out of the last 10 calls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void succeed() {
+        breaker.onSuccess(acquire());
+    }
+
+    private void fail() {
+        breaker.onFailure(acquire());
+    }
+
+    private long acquire() {
+        long permission = breaker.tryAcquirePermission();
+        assertNotEquals(CircuitBreaker.NO_PERMISSION, permission);
+        return permission;
+    }
+
+    private void assertRejected() {
+        assertEquals(CircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission());
+    }
+}
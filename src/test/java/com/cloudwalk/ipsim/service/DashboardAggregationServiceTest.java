@@ -0,0 +1,125 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.cloudwalk.ipsim.support.Ports;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Dashboard aggregates restored after a crash include the status changes
+ * made after the last checkpoint
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:dashboard-aggregation;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "ipsim.emulator.latency.median=0ms",
+        "ipsim.emulator.error-rate=0",
+        "ipsim.emulator.timeout-rate=0",
+        "ipsim.emulator.payment.approval-rate=1",
+        "ipsim.emulator.payment.delay.median=0ms",
+        "ipsim.emulator.webhook.loss-rate=1",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.dashboard.checkpoint.overlap=100ms",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-dashboard-aggregation-webhooks"
+})
+@ActiveProfiles("emulator")
+class DashboardAggregationServiceTest {
+
+    private static final Duration OVERLAP = Duration.ofMillis(100);
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static Path checkpointFile;
+
+    @Autowired
+    private DashboardAggregationService dashboardAggregationService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CardVaultService cardVaultService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        // The emulator profile calls back into the application's own port
+        int port = Ports.freeLoopbackPort();
+        registry.add("server.port", () -> port);
+        // A checkpoint left by an earlier run would not match the fresh database
+        checkpointFile = Files.createTempDirectory("ipsim-dashboard").resolve("aggregates.json");
+        registry.add("ipsim.dashboard.checkpoint.file", checkpointFile::toString);
+    }
+
+    @Test
+    void testApprovalAfterCheckpointIsReplayed() throws InterruptedException {
+        Transaction accepted = paymentService.processPayment(newTransaction());
+        awaitStatus(accepted.getOrderNsu(), TransactionStatus.PENDING);
+
+        // Checkpoint well after the checkout link, then approve and "crash"
+        Thread.sleep(OVERLAP.multipliedBy(3).toMillis());
+        dashboardAggregationService.checkpoint();
+        awaitApprovedByStatusCheck(accepted.getOrderNsu());
+
+        DashboardAggregationService restarted = new DashboardAggregationService(
+                checkpointFile, OVERLAP, transactionRepository, transactionManager, objectMapper);
+        restarted.start();
+
+        assertEquals(0, restarted.count(TransactionStatus.PENDING));
+        assertEquals(1, restarted.count(TransactionStatus.APPROVED));
+    }
+
+    private Transaction newTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(new BigDecimal("150.00"));
+        transaction.setType(TransactionType.CREDIT_SPOT);
+        transaction.setInstallments(1);
+        transaction.setCard(cardVaultService.cardFor("4000123456789010", "DASHBOARD TEST", "12/30"));
+        return transaction;
+    }
+
+    private void awaitStatus(String orderNsu, TransactionStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (transactionRepository.findSnapshotByOrderNsu(orderNsu).orElseThrow().getStatus() == status) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Order " + orderNsu + " never reached " + status);
+    }
+
+    private void awaitApprovedByStatusCheck(String orderNsu) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (paymentService.checkPaymentStatus(orderNsu)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Order " + orderNsu + " was never paid");
+    }
+}
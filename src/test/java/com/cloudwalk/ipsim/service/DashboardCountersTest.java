@@ -0,0 +1,140 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import static com.cloudwalk.ipsim.model.TransactionStatus.APPROVED;
+import static com.cloudwalk.ipsim.model.TransactionStatus.DENIED;
+import static com.cloudwalk.ipsim.model.TransactionStatus.PENDING;
+import static com.cloudwalk.ipsim.model.TransactionStatus.PENDING_CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardCountersTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 10, 14, 30);
+    private static final LocalDateTime CREATED = NOW.minusMinutes(10);
+
+    private final DashboardCounters counters = new DashboardCounters(
+            Duration.ofMinutes(2), Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+    @Test
+    void testApprovalMovesTransactionBetweenStatuses() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        counters.apply(a, null, 1, PENDING, TransactionType.DEBIT, 1, 10_000, 0, CREATED);
+        counters.apply(b, null, 1, DENIED, TransactionType.DEBIT, 1, 5_000, 0, CREATED);
+        counters.apply(a, PENDING, 1, APPROVED, TransactionType.DEBIT, 1, 10_000, 9_850, CREATED);
+
+        assertEquals(0, count(PENDING));
+        assertEquals(1, count(APPROVED));
+        assertEquals(1, count(DENIED));
+        assertEquals(15_000, counters.cells(null, null).stream().mapToLong(DashboardCounters.CellSnapshot::amountCents).sum());
+        assertEquals(9_850, counters.cells(null, null).stream().mapToLong(DashboardCounters.CellSnapshot::netAmountCents).sum());
+    }
+
+    @Test
+    void testApprovalWithOtherInstallmentsLeavesTheCellItWasCountedIn() {
+        UUID remembered = UUID.randomUUID();
+        UUID forgotten = UUID.randomUUID();
+        counters.apply(remembered, null, 3, PENDING, TransactionType.CREDIT_INSTALLMENT, 3, 10_000, 0, CREATED);
+        counters.apply(forgotten, null, 3, PENDING, TransactionType.CREDIT_INSTALLMENT, 3, 10_000, 0,
+                CREATED.minusHours(1), CREATED.minusHours(1));
+        // Paid in 6 installments instead of 3
+        counters.apply(remembered, PENDING, 3, APPROVED, TransactionType.CREDIT_INSTALLMENT, 6, 10_000, 9_000, CREATED);
+        counters.apply(forgotten, PENDING, 3, APPROVED, TransactionType.CREDIT_INSTALLMENT, 6, 10_000, 9_000,
+                CREATED.minusHours(1));
+
+        assertEquals(0, count(PENDING));
+        assertEquals(0, counters.count(PENDING));
+        assertEquals(2, counters.count(APPROVED));
+        assertTrue(counters.cells(null, null).stream().allMatch(c -> c.count() >= 0));
+        assertTrue(counters.cells(null, null).stream().allMatch(c -> c.installments() == 6));
+    }
+
+    @Test
+    void testDuplicateEventsAreCountedOnce() {
+        UUID id = UUID.randomUUID();
+        counters.apply(id, null, 1, PENDING, TransactionType.CREDIT_SPOT, 1, 10_000, 0, CREATED);
+        counters.apply(id, PENDING, 1, APPROVED, TransactionType.CREDIT_SPOT, 1, 10_000, 9_500, CREATED);
+
+        assertFalse(counters.apply(id, PENDING, 1, APPROVED, TransactionType.CREDIT_SPOT, 1, 10_000, 9_500, CREATED));
+        assertEquals(1, count(APPROVED));
+        assertEquals(0, count(PENDING));
+    }
+
+    @Test
+    void testLateNonTerminalEventIsIgnored() {
+        UUID id = UUID.randomUUID();
+        counters.apply(id, null, 1, PENDING_CREATE, TransactionType.DEBIT, 1, 10_000, 0, CREATED);
+        counters.apply(id, PENDING, 1, APPROVED, TransactionType.DEBIT, 1, 10_000, 9_850, CREATED);
+
+        assertFalse(counters.apply(id, PENDING_CREATE, 1, PENDING, TransactionType.DEBIT, 1, 10_000, 0, CREATED));
+        assertEquals(1, count(APPROVED));
+        assertEquals(1, counters.cells(null, null).size());
+    }
+
+    @Test
+    void testReplayAfterRestoreOnlyCountsWhatWasMissed() {
+        UUID counted = UUID.randomUUID();
+        UUID missed = UUID.randomUUID();
+        UUID old = UUID.randomUUID();
+        counters.apply(old, null, 1, PENDING, TransactionType.DEBIT, 1, 1_000, 0, CREATED.minusHours(2), CREATED.minusHours(2));
+        counters.apply(counted, null, 1, PENDING, TransactionType.DEBIT, 1, 2_000, 0, NOW.minusMinutes(1));
+        DashboardCounters.Snapshot snapshot = counters.snapshot();
+
+        DashboardCounters restored = new DashboardCounters(
+                Duration.ofMinutes(2), Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        restored.restore(snapshot);
+        // Rows changed since the checkpoint minus the overlap, as read back from the database
+        restored.apply(counted, null, 1, PENDING, TransactionType.DEBIT, 1, 2_000, 0, NOW.minusMinutes(1), NOW.minusMinutes(1));
+        restored.apply(missed, null, 1, DENIED, TransactionType.DEBIT, 1, 4_000, 0, NOW, NOW);
+        restored.apply(old, PENDING, 1, APPROVED, TransactionType.DEBIT, 1, 1_000, 950, CREATED.minusHours(2), NOW);
+
+        List<DashboardCounters.CellSnapshot> cells = restored.cells(null, null);
+        assertEquals(3, cells.stream().mapToLong(DashboardCounters.CellSnapshot::count).sum());
+        assertEquals(1, cells.stream().filter(c -> c.status() == PENDING).mapToLong(DashboardCounters.CellSnapshot::count).sum());
+        assertEquals(7_000, cells.stream().mapToLong(DashboardCounters.CellSnapshot::amountCents).sum());
+    }
+
+    @Test
+    void testPendingCreateIsRememberedPastTheWindow() {
+        UUID stuck = UUID.randomUUID();
+        counters.apply(stuck, null, 1, PENDING_CREATE, TransactionType.DEBIT, 1, 3_000, 0, CREATED.minusHours(1),
+                CREATED.minusHours(1));
+        DashboardCounters.Snapshot snapshot = counters.snapshot();
+
+        DashboardCounters restored = new DashboardCounters(
+                Duration.ofMinutes(2), Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        restored.restore(snapshot);
+        // Replay assumes PENDING for old rows; the snapshot knows better
+        restored.apply(stuck, PENDING, 1, DENIED, TransactionType.DEBIT, 1, 3_000, 0, CREATED.minusHours(1), NOW);
+
+        List<DashboardCounters.CellSnapshot> cells = restored.cells(null, null);
+        assertEquals(1, cells.size());
+        assertEquals(1, cells.stream().filter(c -> c.status() == DENIED).mapToLong(DashboardCounters.CellSnapshot::count).sum());
+    }
+
+    @Test
+    void testCellsAreFilteredByCreationHour() {
+        counters.apply(UUID.randomUUID(), null, 1, PENDING, TransactionType.DEBIT, 1, 100, 0, NOW.minusHours(3));
+        counters.apply(UUID.randomUUID(), null, 1, PENDING, TransactionType.DEBIT, 1, 100, 0, NOW);
+
+        assertEquals(1, counters.cells(NOW.minusMinutes(5), null).size());
+        assertEquals(1, counters.cells(null, NOW.minusHours(1)).size());
+    }
+
+    private long count(TransactionStatus status) {
+        return counters.cells(null, null).stream()
+                .filter(c -> c.status() == status)
+                .mapToLong(DashboardCounters.CellSnapshot::count)
+                .sum();
+    }
+}
@@ -0,0 +1,75 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.infinitepay.PaymentStatusCheckResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentStatusCheckCoalescerTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean paid = new AtomicBoolean();
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    // Only checkPaymentStatusAsync is used, the collaborators are never touched
+    private final InfinitePayService infinitePayService = new InfinitePayService(null, null, null, null) {
+        @Override
+        public Mono<PaymentStatusCheckResponse> checkPaymentStatusAsync(
+                String orderNsu, String slug, String transactionNsu) {
+            return Mono.defer(() -> {
+                upstreamCalls.incrementAndGet();
+                if (failing.get()) {
+                    return Mono.error(new RuntimeException("Failed to check payment status"));
+                }
+                return Mono.just(PaymentStatusCheckResponse.builder().success(true).paid(paid.get()).build());
+            }).delayElement(Duration.ofMillis(100));
+        }
+    };
+
+    private final PaymentStatusCheckCoalescer coalescer = new PaymentStatusCheckCoalescer(
+            infinitePayService, 1_000, Duration.ofMillis(200), new SimpleMeterRegistry());
+
+    @Test
+    void testConcurrentChecksShareOneUpstreamCall() {
+        List<PaymentStatusCheckResponse> responses = Flux.range(0, 50)
+                .flatMap(i -> coalescer.check("ORD-1", "slug", null))
+                .collectList()
+                .block();
+
+        assertEquals(50, responses.size());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void testUnpaidAnswerExpiresButPaidAnswerIsKept() throws InterruptedException {
+        coalescer.check("ORD-1", "slug", null).block();
+        coalescer.check("ORD-1", "slug", null).block();
+        assertEquals(1, upstreamCalls.get());
+
+        Thread.sleep(400);
+        paid.set(true);
+        assertEquals(true, coalescer.check("ORD-1", "slug", null).block().getPaid());
+        assertEquals(2, upstreamCalls.get());
+
+        Thread.sleep(400);
+        coalescer.check("ORD-1", "slug", null).block();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        failing.set(true);
+        assertThrows(RuntimeException.class, () -> coalescer.check("ORD-1", "slug", null).block());
+
+        failing.set(false);
+        coalescer.check("ORD-1", "slug", null).block();
+        assertEquals(2, upstreamCalls.get());
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentStatusStreamServiceTest {
+
+    private static final String ORDER_NSU = "ORD-SSE-1";
+    private static final UUID ID = UUID.randomUUID();
+
+    private final PaymentStatusStreamService service = new PaymentStatusStreamService();
+
+    @Test
+    void testChangeBetweenSubscribeAndSnapshotIsNotMissed() {
+        SseEmitter emitter = service.subscribe(ORDER_NSU, () -> {
+            // Snapshot read just before the webhook commits
+            TransactionResponseDTO stale = snapshot(TransactionStatus.PENDING);
+            service.onStatusChanged(event(TransactionStatus.PENDING, TransactionStatus.APPROVED));
+            return stale;
+        });
+
+        // Completed by the APPROVED event instead of staying open until the timeout
+        assertThrows(IllegalStateException.class, () -> emitter.send("ping"));
+    }
+
+    @Test
+    void testNonTerminalSnapshotKeepsStreamOpen() {
+        SseEmitter emitter = service.subscribe(ORDER_NSU, () -> snapshot(TransactionStatus.PENDING));
+
+        assertDoesNotThrow(() -> emitter.send("ping"));
+
+        service.onStatusChanged(event(TransactionStatus.PENDING, TransactionStatus.APPROVED));
+        assertThrows(IllegalStateException.class, () -> emitter.send("ping"));
+    }
+
+    private static TransactionResponseDTO snapshot(TransactionStatus status) {
+        return new TransactionResponseDTO(ID, new BigDecimal("150.00"), null, status, LocalDateTime.now(),
+                LocalDateTime.now(), "", "https://checkout.example/1", ORDER_NSU, null);
+    }
+
+    private static TransactionStatusChangedEvent event(TransactionStatus from, TransactionStatus to) {
+        return new TransactionStatusChangedEvent(ID, ORDER_NSU, from, to, TransactionType.CREDIT_SPOT, 1, 1,
+                new BigDecimal("150.00"), null, LocalDateTime.now(), "https://checkout.example/1", null,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,100 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import com.cloudwalk.ipsim.support.Ports;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Paid checkouts whose webhook is lost are approved by the reconciler
+ *
+ * The in-process emulator pays every checkout almost at once and never
+ * sends the webhook, so only the reconciler can approve them.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconciler;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "ipsim.emulator.latency.median=0ms",
+        "ipsim.emulator.error-rate=0",
+        "ipsim.emulator.timeout-rate=0",
+        "ipsim.emulator.payment.approval-rate=1",
+        "ipsim.emulator.payment.delay.median=0ms",
+        "ipsim.emulator.webhook.loss-rate=1",
+        "ipsim.reconciler.initial-delay-ms=0",
+        "ipsim.reconciler.interval-ms=100",
+        "ipsim.reconciler.stale-after=0s",
+        "ipsim.reconciler.backoff.initial=100ms",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-reconciler-webhooks",
+        "ipsim.dashboard.checkpoint.file=${java.io.tmpdir}/ipsim-reconciler-dashboard.json"
+})
+@ActiveProfiles("emulator")
+class PendingTransactionReconcilerTest {
+
+    private static final long APPROVAL_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CardVaultService cardVaultService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @DynamicPropertySource
+    static void serverPort(DynamicPropertyRegistry registry) throws IOException {
+        // The emulator profile calls back into the application's own port
+        int port = Ports.freeLoopbackPort();
+        registry.add("server.port", () -> port);
+    }
+
+    @Test
+    void testLostWebhookIsApprovedWithItsApprovalTime() {
+        Transaction accepted = paymentService.processPayment(newTransaction());
+
+        TransactionResponseDTO pending = awaitStatus(accepted.getOrderNsu(), TransactionStatus.PENDING);
+        TransactionResponseDTO approved = awaitStatus(accepted.getOrderNsu(), TransactionStatus.APPROVED);
+
+        // Last status change is the approval, not the checkout link creation
+        assertTrue(approved.getTimestamp().isAfter(pending.getTimestamp()),
+                pending.getTimestamp() + " -> " + approved.getTimestamp());
+    }
+
+    private Transaction newTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(new BigDecimal("150.00"));
+        transaction.setType(TransactionType.CREDIT_SPOT);
+        transaction.setInstallments(1);
+        transaction.setCard(cardVaultService.cardFor("4000123456789010", "RECONCILER TEST", "12/30"));
+        return transaction;
+    }
+
+    private TransactionResponseDTO awaitStatus(String orderNsu, TransactionStatus status) {
+        long deadline = System.currentTimeMillis() + APPROVAL_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            TransactionResponseDTO snapshot = transactionRepository.findSnapshotByOrderNsu(orderNsu).orElseThrow();
+            if (snapshot.getStatus() == status) {
+                return snapshot;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("Order " + orderNsu + " never reached " + status);
+    }
+}
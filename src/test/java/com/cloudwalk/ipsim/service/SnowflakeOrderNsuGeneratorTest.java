@@ -0,0 +1,95 @@
+package com.cloudwalk.ipsim.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeOrderNsuGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    @Test
+    void testNoCollisionsAcrossThreadsAtMillionsOfIds() throws Exception {
+        SnowflakeOrderNsuGenerator generator = new SnowflakeOrderNsuGenerator(7);
+        long[][] perThread = new long[THREADS][IDS_PER_THREAD];
+
+        Thread[] threads = new Thread[THREADS];
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            long[] ids = perThread[t];
+            threads[t] = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        for (int t = 0; t < THREADS; t++) {
+            long[] ids = perThread[t];
+            for (int i = 1; i < ids.length; i++) {
+                assertTrue(ids[i] > ids[i - 1], "ids must increase within a thread");
+            }
+            System.arraycopy(ids, 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+        }
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "duplicate id " + generator.format(all[i]));
+        }
+
+        System.out.printf("Generated %d order NSUs in %.2fs (%.1fM/s)%n",
+                all.length, seconds, all.length / seconds / 1e6);
+    }
+
+    @Test
+    void testFormatIsFixedWidthAndSortsByTime() {
+        AtomicLong clock = new AtomicLong(1_708_234_567_001L);
+        SnowflakeOrderNsuGenerator generator = new SnowflakeOrderNsuGenerator(1, clock::get);
+
+        String first = generator.next();
+        String second = generator.next();
+        clock.set(1_708_234_567_999L);
+        String third = generator.next();
+        clock.set(1_708_234_568_000L);
+        String fourth = generator.next();
+
+        // 1 ms, node 1, sequence 0 -> 0x00401000
+        assertEquals("ORD-1708234567-00401000", first);
+        assertEquals("ORD-1708234567-00401001", second);
+        assertEquals(first.length(), fourth.length());
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+        assertTrue(third.compareTo(fourth) < 0);
+    }
+
+    @Test
+    void testStaysMonotonicWhenClockGoesBackwardsOrSequenceOverflows() {
+        AtomicLong clock = new AtomicLong(1_000_000L);
+        SnowflakeOrderNsuGenerator generator = new SnowflakeOrderNsuGenerator(0, clock::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 3 * (SnowflakeOrderNsuGenerator.SEQUENCE_MASK + 1); i++) {
+            if (i == 100) {
+                clock.set(999_000L);
+            }
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void testRejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeOrderNsuGenerator(SnowflakeOrderNsuGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,74 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.event.TransactionStatusChangedEvent;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionMetricsTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 10, 14, 30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Only count() is used, the collaborators are never touched
+    private final DashboardAggregationService dashboard = new DashboardAggregationService(
+            Path.of("unused"), Duration.ofMinutes(2), null, null, null) {
+        @Override
+        public long count(TransactionStatus status) {
+            return status == TransactionStatus.PENDING ? 7 : 0;
+        }
+    };
+
+    private final TransactionMetrics metrics = new TransactionMetrics(dashboard, meterRegistry);
+
+    @Test
+    void testStatusChangesAreCountedByStatusAndType() {
+        metrics.onStatusChanged(event(null, TransactionStatus.PENDING, TransactionType.DEBIT, CREATED));
+        metrics.onStatusChanged(event(null, TransactionStatus.PENDING, TransactionType.DEBIT, CREATED));
+        metrics.onStatusChanged(event(null, TransactionStatus.DENIED, TransactionType.CREDIT_SPOT, CREATED));
+
+        assertEquals(2.0, statusChanges(TransactionStatus.PENDING, TransactionType.DEBIT));
+        assertEquals(1.0, statusChanges(TransactionStatus.DENIED, TransactionType.CREDIT_SPOT));
+        assertEquals(0.0, statusChanges(TransactionStatus.APPROVED, TransactionType.DEBIT));
+    }
+
+    @Test
+    void testSettlementIsTimedFromCreationToApproval() {
+        metrics.onStatusChanged(event(TransactionStatus.PENDING, TransactionStatus.APPROVED,
+                TransactionType.CREDIT_INSTALLMENT, CREATED.plusSeconds(42)));
+        // Approved at creation (no PENDING phase): not a settlement
+        metrics.onStatusChanged(event(null, TransactionStatus.APPROVED, TransactionType.DEBIT, CREATED));
+
+        Timer settlement = meterRegistry.get("ipsim.transactions.settlement").timer();
+        assertEquals(1, settlement.count());
+        assertEquals(42_000.0, settlement.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testPendingGaugeReadsDashboardAggregates() {
+        assertEquals(7.0, meterRegistry.get("ipsim.transactions.pending").gauge().value());
+    }
+
+    private double statusChanges(TransactionStatus status, TransactionType type) {
+        return meterRegistry.get("ipsim.transactions.status.changes")
+                .tags("status", status.name(), "type", type.name())
+                .counter()
+                .count();
+    }
+
+    private static TransactionStatusChangedEvent event(TransactionStatus previousStatus, TransactionStatus status,
+                                                       TransactionType type, LocalDateTime timestamp) {
+        return new TransactionStatusChangedEvent(UUID.randomUUID(), "ORD-1", previousStatus, status, type, 1, 1,
+                new BigDecimal("150.00"), null, timestamp, null, null, CREATED);
+    }
+}
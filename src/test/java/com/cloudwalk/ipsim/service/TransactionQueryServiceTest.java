@@ -0,0 +1,100 @@
+package com.cloudwalk.ipsim.service;
+
+import com.cloudwalk.ipsim.dto.TransactionFilter;
+import com.cloudwalk.ipsim.dto.TransactionResponseDTO;
+import com.cloudwalk.ipsim.model.Card;
+import com.cloudwalk.ipsim.model.Transaction;
+import com.cloudwalk.ipsim.model.TransactionStatus;
+import com.cloudwalk.ipsim.model.TransactionType;
+import com.cloudwalk.ipsim.repository.CardRepository;
+import com.cloudwalk.ipsim.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Keyset paging stays stable while transactions change status
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transaction-query;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "ipsim.reconciler.enabled=false",
+        "ipsim.outbox.relay.enabled=false",
+        "ipsim.webhook.queue.dir=${java.io.tmpdir}/ipsim-transaction-query-webhooks",
+        "ipsim.dashboard.checkpoint.file=${java.io.tmpdir}/ipsim-transaction-query-dashboard.json"
+})
+class TransactionQueryServiceTest {
+
+    private static final TransactionFilter NO_FILTER = new TransactionFilter(null, null, null, null);
+
+    @Autowired
+    private TransactionQueryService transactionQueryService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Test
+    void testStatusChangesBetweenPagesNeitherSkipNorRepeatRows() {
+        Card card = cardRepository.save(new Card("paging-card", "9010", "PAGING TEST", "12/30"));
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+        List<Transaction> seeded = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // Rows 1 and 2 share their creation time and end up on different pages
+            seeded.add(pending(card, base.minusMinutes(i == 2 ? 1 : i)));
+        }
+        transactionRepository.saveAll(seeded);
+        // Order before any change, ties included
+        List<UUID> expected = transactionRepository.findFirstPage(null, null, null, null, Limit.of(10)).stream()
+                .map(TransactionResponseDTO::getId)
+                .toList();
+        assertEquals(6, expected.size());
+
+        List<UUID> listed = new ArrayList<>();
+        TransactionQueryService.TransactionPage page = transactionQueryService.findPage(NO_FILTER, null, 2);
+        page.items().forEach(item -> listed.add(item.getId()));
+
+        // Approve the oldest row and one already listed: both get a new timestamp
+        approve(expected.get(5));
+        approve(expected.get(0));
+
+        while (page.nextCursor() != null) {
+            page = transactionQueryService.findPage(NO_FILTER, page.nextCursor(), 2);
+            page.items().forEach(item -> listed.add(item.getId()));
+            approve(expected.get(listed.size() - 1));
+        }
+
+        assertEquals(expected, listed);
+        assertNull(page.nextCursor());
+    }
+
+    private static Transaction pending(Card card, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(new BigDecimal("150.00"));
+        transaction.setType(TransactionType.CREDIT_SPOT);
+        transaction.setInstallments(1);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setCreatedAt(createdAt);
+        transaction.setTimestamp(createdAt);
+        transaction.setCard(card);
+        return transaction;
+    }
+
+    private void approve(UUID id) {
+        Transaction transaction = transactionRepository.findById(id).orElseThrow();
+        transaction.setStatus(TransactionStatus.APPROVED);
+        transaction.setTimestamp(LocalDateTime.now());
+        transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cloudwalk.ipsim.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebhookJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testUncommittedRecordsAreReplayedAfterRestart() throws Exception {
+        try (WebhookJournal journal = new WebhookJournal(dir, false, Long.MAX_VALUE)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+            }
+            WebhookJournal.Batch batch = journal.readBatch(3);
+            assertEquals(3, batch.records().size());
+            journal.commit(batch.endOffset());
+        }
+
+        // Simulated restart: only the two uncommitted records remain
+        try (WebhookJournal journal = new WebhookJournal(dir, false, Long.MAX_VALUE)) {
+            assertEquals(2, journal.countPending());
+            WebhookJournal.Batch batch = journal.readBatch(10);
+            assertEquals("{\"n\":3}", new String(batch.records().get(0), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testLogIsTruncatedOnceFullyConsumed() throws Exception {
+        try (WebhookJournal journal = new WebhookJournal(dir, false, 1)) {
+            journal.append("{}".getBytes(StandardCharsets.UTF_8));
+            journal.commit(journal.readBatch(10).endOffset());
+
+            assertEquals(0, Files.size(dir.resolve(WebhookJournal.LOG_FILE)));
+            assertEquals(0, journal.countPending());
+        }
+    }
+}
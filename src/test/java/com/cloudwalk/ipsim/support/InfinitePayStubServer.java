@@ -0,0 +1,91 @@
+package com.cloudwalk.ipsim.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal local stand-in for the InfinitePay Checkout API
+ *
+ * Answers the two endpoints used by InfinitePayService after a fixed
+ * latency, so load tests and benchmarks never leave the machine.
+ */
+public class InfinitePayStubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration latency;
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong statusChecks = new AtomicLong();
+
+    private InfinitePayStubServer(Duration latency) throws IOException {
+        this.latency = latency;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16_384);
+        server.setExecutor(executor);
+        server.createContext("/invoices/public/checkout/links", exchange -> {
+            long n = checkouts.incrementAndGet();
+            respond(exchange, "{\"checkout_url\":\"https://pay.stub.local/c/" + n
+                    + "\",\"slug\":\"stub-" + n + "\",\"success\":true}");
+        });
+        server.createContext("/invoices/public/checkout/payment_check", exchange -> {
+            statusChecks.incrementAndGet();
+            respond(exchange, "{\"success\":true,\"paid\":false}");
+        });
+        server.start();
+    }
+
+    /**
+     * Starts a stub on an ephemeral loopback port
+     *
+     * @param latency Delay applied before every response
+     * @return Running stub
+     */
+    public static InfinitePayStubServer start(Duration latency) throws IOException {
+        return new InfinitePayStubServer(latency);
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long checkoutCount() {
+        return checkouts.get();
+    }
+
+    public long statusCheckCount() {
+        return statusChecks.get();
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.cloudwalk.ipsim.support;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires a burst of concurrent JSON POSTs and reports latency percentiles
+ *
+ * Every request runs on its own virtual thread and all of them are released
+ * at once, so {@code concurrency} is the number of requests in flight.
+ */
+public class LoadDriver {
+
+    private final HttpClient client;
+    private final URI target;
+
+    public LoadDriver(URI target) {
+        this.target = target;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public Result run(int concurrency, String jsonBody) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .build();
+
+        long[] latencies = new long[concurrency];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        long started;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                int slot = i;
+                workers.execute(() -> {
+                    try {
+                        startGate.await();
+                        long t0 = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[slot] = System.nanoTime() - t0;
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        latencies[slot] = -1;
+                        failures.incrementAndGet();
+                    }
+                });
+            }
+            started = System.nanoTime();
+            startGate.countDown();
+        } // close() waits for every request
+        long wallNanos = System.nanoTime() - started;
+
+        long[] ok = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+        return new Result(concurrency, concurrency - failures.get(), failures.get(), wallNanos, ok);
+    }
+
+    public record Result(int concurrency, int successes, int failures, long wallNanos, long[] sortedLatencies) {
+
+        public double throughputPerSecond() {
+            return successes / (wallNanos / 1_000_000_000.0);
+        }
+
+        public double percentileMillis(double p) {
+            return LoadDriver.percentileMillis(sortedLatencies, p);
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of sorted nanosecond latencies, in milliseconds
+     */
+    public static double percentileMillis(long[] sortedLatencies, double p) {
+        if (sortedLatencies.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.cloudwalk.ipsim.support;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+public final class Ports {
+
+    private Ports() {
+    }
+
+    /**
+     * A loopback port free right now, for servers whose port must be known
+     * before they start (e.g. the emulator profile points
+     * infinitepay.api.base-url at the application's own port)
+     */
+    public static int freeLoopbackPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}